@@ -3,10 +3,12 @@ package ru;
 import jakarta.annotation.PostConstruct;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.TimeZone;
 
 @SpringBootApplication
+@EnableScheduling
 public class TelegramJavaBotApplication {
     public static void main(String[] args) {
         SpringApplication.run(TelegramJavaBotApplication.class, args);
@@ -2,6 +2,7 @@ package ru.bot;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
 import org.telegram.telegrambots.longpolling.starter.SpringLongPollingBot;
@@ -10,8 +11,9 @@ import ru.conf.BotProperties;
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "longpolling", matchIfMissing = true)
 public class MyTelegramBot implements SpringLongPollingBot {
-    private final UpdateConsumer updateConsumer;
+    private final UpdateDispatcher updateDispatcher;
     private final BotProperties botProperties;
 
     @Override
@@ -21,7 +23,7 @@ public class MyTelegramBot implements SpringLongPollingBot {
 
     @Override
     public LongPollingUpdateConsumer getUpdatesConsumer() {
-        return updateConsumer;
+        return updateDispatcher;
     }
 
 }
\ No newline at end of file
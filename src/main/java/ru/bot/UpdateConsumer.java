@@ -3,20 +3,22 @@ package ru.bot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import ru.bot.handler.callback.CallbackQueryHandler;
 import ru.bot.handler.TextMessageHandler;
+import ru.service.session.SessionStore;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
-public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
+public class UpdateConsumer {
     private final TextMessageHandler textMessageHandler;
     private final CallbackQueryHandler callbackQueryHandler;
+    private final SessionStore sessionStore;
 
-    @Override
     public void consume(Update update) {
+        // Сессии читаются один раз за апдейт; изменения пишутся в Redis одной пачкой в конце, при ошибке отбрасываются
+        sessionStore.begin();
         try {
             log.info("Received update: {}", update);
 
@@ -27,8 +29,13 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
             } else {
                 log.info("Unknown update type: {}", update);
             }
-        } catch (Exception e) {
+            sessionStore.commit();
+        } catch (RuntimeException e) {
+            // вызывающий решает, что делать с апдейтом: webhook-воркер не подтвердит запись и повторит её
             log.error("Error processing update", e);
+            throw e;
+        } finally {
+            sessionStore.close();
         }
     }
 }
\ No newline at end of file
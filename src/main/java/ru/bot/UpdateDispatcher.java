@@ -0,0 +1,129 @@
+package ru.bot;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.conf.DispatcherProperties;
+import ru.service.NotificationService;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Раздаёт апдейты по виртуальным потокам: апдейты одного чата обрабатываются строго по порядку,
+ * разные чаты — параллельно, не более {@code maxInFlightChats} одновременно.
+ * Если очередь чата полна, апдейт сразу отклоняется и пользователь получает ответ, а не теряет
+ * сообщение молча; приём апдейтов остальных чатов при этом не задерживается.
+ */
+@Slf4j
+@Component
+public class UpdateDispatcher implements LongPollingUpdateConsumer {
+    private final UpdateConsumer updateConsumer;
+    private final NotificationService notificationService;
+    private final int queueCapacity;
+    private final Semaphore inFlightChats;
+    private final ConcurrentHashMap<Long, BlockingQueue<Update>> lanes = new ConcurrentHashMap<>();
+    // Чаты, которым уже ответили о переполнении очереди
+    private final Set<Long> overflowNotified = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public UpdateDispatcher(UpdateConsumer updateConsumer, NotificationService notificationService,
+                            DispatcherProperties properties) {
+        this.updateConsumer = updateConsumer;
+        this.notificationService = notificationService;
+        this.queueCapacity = properties.getQueueCapacityPerChat();
+        this.inFlightChats = new Semaphore(properties.getMaxInFlightChats());
+    }
+
+    @Override
+    public void consume(List<Update> updates) {
+        updates.forEach(this::dispatch);
+    }
+
+    // Поток приёма общий для всех чатов, поэтому никогда не ждёт: полная очередь — отказ сразу
+    public void dispatch(Update update) {
+        Long chatId = Updates.chatIdOf(update);
+        if (tryDispatch(chatId, update)) {
+            return;
+        }
+        log.warn("Очередь чата {} переполнена, апдейт {} отклонён", chatId, update.getUpdateId());
+        // Отвечаем один раз, пока очередь не разберётся; без чата (lane 0) отвечать некому
+        if (chatId != 0L && overflowNotified.add(chatId)) {
+            notificationService.sendMessage(chatId, "⏳ Слишком много сообщений подряд. Повторите чуть позже.");
+        }
+    }
+
+    private boolean tryDispatch(Long chatId, Update update) {
+        boolean[] started = {false};
+        boolean[] accepted = {false};
+
+        // очередь создаётся и пополняется атомарно относительно её удаления в drain()
+        BlockingQueue<Update> lane = lanes.compute(chatId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayBlockingQueue<>(queueCapacity);
+                started[0] = true;
+            }
+            accepted[0] = queue.offer(update);
+            return queue;
+        });
+
+        if (started[0]) {
+            executor.execute(() -> drain(chatId, lane));
+        }
+        return accepted[0];
+    }
+
+    private void drain(Long chatId, BlockingQueue<Update> lane) {
+        try {
+            inFlightChats.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lanes.remove(chatId, lane);
+            return;
+        }
+        boolean drained = false;
+        try {
+            while (true) {
+                Update update = lane.poll();
+                if (update == null) {
+                    // удаляем очередь, только если за это время в неё ничего не положили
+                    if (lanes.computeIfPresent(chatId, (id, queue) -> queue.isEmpty() ? null : queue) == null) {
+                        overflowNotified.remove(chatId);
+                        drained = true;
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    updateConsumer.consume(update);
+                } catch (RuntimeException e) {
+                    // уже залогировано в UpdateConsumer; повторять апдейт из long polling некому
+                    log.debug("Апдейт {} чата {} не обработан", update.getUpdateId(), chatId);
+                }
+            }
+        } finally {
+            // вышли не через пустую очередь (Error) — убираем её, иначе чат остался бы без обработчика
+            if (!drained && lanes.remove(chatId, lane)) {
+                log.error("Обработчик чата {} аварийно завершён, отброшено апдейтов: {}", chatId, lane.size());
+            }
+            overflowNotified.remove(chatId);
+            inFlightChats.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.bot;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+public final class Updates {
+
+    private Updates() {
+    }
+
+    // chatId, по которому апдейты упорядочиваются; прочие типы апдейтов попадают в общий поток 0
+    public static Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            if (update.getCallbackQuery().getMessage() != null) {
+                return update.getCallbackQuery().getMessage().getChatId();
+            }
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        return 0L;
+    }
+}
@@ -10,7 +10,9 @@ import ru.model.Appointment;
 import ru.model.User;
 import ru.model.enums.*;
 import ru.service.*;
+import ru.service.hold.SlotHoldService;
 import ru.util.AdminKeyboard;
+import ru.util.ClientStatsText;
 import ru.util.KeyboardFactory;
 
 import java.math.BigDecimal;
@@ -19,8 +21,6 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import static ru.util.BotConstants.*;
@@ -40,6 +40,7 @@ public class TextMessageHandler {
     private final FloodProtectionService floodProtectionService;
     private final PaymentSessionService paymentSessionService;
     private final PaymentService paymentService;
+    private final SlotHoldService slotHoldService;
 
     public void handleTextMessage(Update update) {
         Message message = update.getMessage();
@@ -47,7 +48,7 @@ public class TextMessageHandler {
         String text = message.getText();
         Long userId = message.getFrom().getId();
         String role = userSessionService.getRole(chatId);
-        if (floodProtectionService.isFloodDetected(userId, text)) {
+        if (floodProtectionService.isFloodDetected(userId, text, RateLimitAction.TEXT)) {
             log.warn("Флуд защита сработала для пользователя {} в текстовом сообщении", userId);
             notificationService.sendMessage(chatId, "❌ Слишком много запросов. Попробуйте позже.");
             return;
@@ -122,10 +123,23 @@ public class TextMessageHandler {
             case AWAITING_CONFIRMATION -> showPaymentConfirmation(chatId);
             case AWAITING_STATS_START_DATE -> handleStatsStartDateInput(chatId, text);
             case AWAITING_STATS_END_DATE -> handleStatsEndDateInput(chatId, text);
+            case AWAITING_CLIENT_STATS_PHONE -> handleClientStatsPhone(chatId, text);
             default -> log.warn("Неизвестное платежное состояние: {}", state);
         }
     }
 
+    private void handleClientStatsPhone(Long chatId, String text) {
+        paymentSessionService.clearPaymentState(chatId);
+        if (text.equalsIgnoreCase("/cancel")) {
+            notificationService.sendMessage(chatId, "❌ Поиск отменен", adminKeyboard.getPaymentMenu());
+            return;
+        }
+        String card = paymentService.getClientStatsByPhone(text)
+                .map(ClientStatsText::card)
+                .orElse("🔍 Клиент с номером " + text + " не найден");
+        notificationService.sendMessage(chatId, card, adminKeyboard.getClientCardKeyboard());
+    }
+
     private void handleStatsStartDateInput(Long chatId, String text) {
         if (text.equalsIgnoreCase("/cancel")) {
             paymentSessionService.clearPaymentState(chatId);
@@ -362,6 +376,10 @@ public class TextMessageHandler {
         }
 
         try {
+            // Бронь могла истечь и достаться другому клиенту
+            if (!slotHoldService.hold(chatId, dateTime)) {
+                throw new IllegalStateException("Слот удерживает другой клиент");
+            }
             User user;
             if (isAdminFlow) {
                 user = userService.findOrCreateByPhone(phone, name);
@@ -408,6 +426,7 @@ public class TextMessageHandler {
             }
 
         } catch (IllegalStateException e) {
+            appointmentService.clearPendingDate(chatId);
             notificationService.sendMessage(chatId, "❌ Время уже занято. Выберите новое.");
 
             if (isAdminFlow) {
@@ -523,16 +542,9 @@ public class TextMessageHandler {
         }
 
         LocalDate today = LocalDate.now();
-        List<LocalDate> availableDates = new ArrayList<>();
-        for (int i = 0; i < 7; i++) {
-            LocalDate date = today.plusDays(i);
-            if (appointmentService.isWorkingDay(date)) {
-                List<LocalDateTime> slots = appointmentService.getAvailableTimeSlots(date.atStartOfDay());
-                if (!slots.isEmpty()) availableDates.add(date);
-            }
-        }
+        Map<LocalDate, Integer> freeSlots = appointmentService.getAvailableSlotCounts(today, today.plusDays(6));
 
-        InlineKeyboardMarkup markup = keyboardFactory.dateSelectionKeyboard(availableDates, UserRole.USER);
+        InlineKeyboardMarkup markup = keyboardFactory.dateSelectionKeyboard(freeSlots, UserRole.USER);
         Message message = notificationService.sendMessageAndReturn(chatId, "Выберите дату записи:", markup);
         appointmentService.setPendingMessageId(chatId, message.getMessageId());
     }
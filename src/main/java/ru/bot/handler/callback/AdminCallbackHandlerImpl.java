@@ -10,11 +10,14 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKe
 import ru.bot.handler.AdminCallbackHandler;
 import ru.model.*;
 import ru.model.enums.*;
+import ru.repository.UserRepository;
 import ru.repository.WorkDaysOverrideRepository;
 import ru.repository.WorkScheduleRepository;
 import ru.service.*;
 import ru.util.AdminKeyboard;
+import ru.util.CallbackArgs;
 import ru.util.KeyboardFactory;
+import ru.service.session.SessionStore;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -22,6 +25,7 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -43,6 +47,7 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
     private final WorkDaysOverrideRepository workDaysOverrideRepository;
     private final KeyboardFactory keyboardFactory;
     private final LunchBreakService lunchBreakService;
+    private final SessionStore sessionStore;
 
     public static final int PAGE_SIZE_FIVE = 5;
 
@@ -52,7 +57,8 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
         Integer messageId = callbackQuery.getMessage().getMessageId();
         Long adminId = callbackQuery.getFrom().getId();
 
-        log.debug("Processing admin callback: data='{}', type={}", data, CallbackType.fromString(data));
+        CallbackType type = CallbackType.fromString(data);
+        log.debug("Processing admin callback: data='{}', type={}", data, type);
 
         if (!userService.isAdmin(adminId)) {
             notificationService.sendOrEditMessage(chatId, messageId, "❌ Доступ запрещён.", null);
@@ -60,40 +66,35 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
         }
 
         try {
-            CallbackType type = CallbackType.fromString(data);
-
             switch (type) {
-                case ADMIN_SHOW_USERS -> showUsers(chatId, messageId, 0);
+                case ADMIN_SHOW_USERS -> showUsers(chatId, messageId, null, true, 0);
                 case ADMIN_SHOW_APPOINTMENTS -> showAllActiveAppointments(chatId, messageId, 0);
                 case ADMIN_ALL_TODAY_APP -> showAllAppointmentsToday(chatId, messageId);
                 case ADMIN_ALL_TOMORROW_APP -> showAllAppointmentsTomorrow(chatId, messageId);
                 case ADMIN_CREATE_APPOINTMENT -> createAppointmentByAdmin(chatId, messageId);
                 case ADMIN_CANCEL_APPOINTMENT -> {
-                    Long appointmentId = Long.parseLong(data.substring("admin_cancel_".length()));
+                    Long appointmentId = type.longArg(data);
                     handleCancelAppointmentByAdmin(chatId, messageId, appointmentId);
                 }
-                case ADMIN_USERS_PAGE -> {
-                    int page = Integer.parseInt(data.substring("admin_users_page_".length()));
-                    showUsers(chatId, messageId, page);
-                }
+                case ADMIN_USERS_PAGE -> showUsersPage(chatId, messageId, data, type.getPrefix());
                 case ADMIN_ADMINS_PAGE -> {
-                    int page = Integer.parseInt(data.substring("admin_admins_page_".length()));
+                    int page = type.intArg(data);
                     setNewAdmin(chatId, messageId, page);
                 }
                 case ADMIN_SET_NEW_ADMIN -> {
-                    Long userId = Long.parseLong(data.substring("admin:set:new_admin_".length()));
+                    Long userId = type.longArg(data);
                     assignAdmin(chatId, messageId, userId);
                 }
                 case ADMIN_DELETE_ADMIN -> {
-                    Long userId = Long.parseLong(data.substring("admin:delete:admin_".length()));
+                    Long userId = type.longArg(data);
                     removeAdmin(chatId, messageId, userId);
                 }
                 case ADMIN_BLOCK_USER -> {
-                    Long userId = Long.parseLong(data.substring("admin_block_".length()));
+                    Long userId = type.longArg(data);
                     blockUser(chatId, messageId, userId);
                 }
                 case ADMIN_UNBLOCK_USER -> {
-                    Long userId = Long.parseLong(data.substring("admin_unblock_".length()));
+                    Long userId = type.longArg(data);
                     unblockUser(chatId, messageId, userId);
                 }
                 case ADMIN_SHOW_STATS -> showStats(chatId, messageId);
@@ -101,8 +102,7 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
                         "⬅️ Возврат в админ-меню", adminKeyboard.getMainAdminMenu());
                 case ADMIN_EDIT_WORK_SCHEDULE, ADMIN_BACK_TO_SCHEDULE -> showWorkScheduleEditMenu(chatId, messageId);
                 case ADMIN_EDIT_DAY -> {
-                    String dayStr = data.substring("admin:edit:day_".length());
-                    int dayOfWeek = Integer.parseInt(dayStr);
+                    int dayOfWeek = type.intArg(data);
                     showEditDayForm(chatId, messageId, dayOfWeek);
                 }
                 case ADMIN_SAVE_DAY -> {
@@ -121,7 +121,7 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
                 case ADMIN_MANAGE_OVERRIDES -> showOverridesMenu(chatId, messageId);
                 case ADMIN_ADD_OVERRIDE -> showAddOverrideForm(chatId, messageId);
                 case ADMIN_DELETE_OVERRIDE -> {
-                    LocalDate date = LocalDate.parse(data.substring("admin:override:delete_".length()));
+                    LocalDate date = type.dateArg(data);
                     deleteOverride(chatId, messageId, date);
                 }
                 case ADMIN_MENU_APPOINTMENTS -> notificationService.sendOrEditMessage(chatId, messageId,
@@ -130,14 +130,13 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
                 case ADMIN_MENU_SCHEDULE -> notificationService.sendOrEditMessage(chatId, messageId,
                         "🗓 *Управление расписанием*", adminKeyboard.getScheduleSubMenu());
                 case ADMIN_APPOINTMENTS_PAGE -> {
-                    int page = Integer.parseInt(data.substring("admin:appointments:page_".length()));
+                    int page = type.intArg(data);
                     showAllActiveAppointments(chatId, messageId, page);
                 }
                 case ADMIN_ADD_NEW_ADMIN -> setNewAdmin(chatId, messageId, 0);
                 case ADMIN_LUNCH_MENU -> showLunchBreakMenu(chatId, messageId);
                 case ADMIN_EDIT_LUNCH -> {
-                    String dayStr = data.substring("admin:edit:lunch_".length());
-                    int dayOfWeek = Integer.parseInt(dayStr);
+                    int dayOfWeek = type.intArg(data);
                     showEditLunchForm(chatId, messageId, dayOfWeek);
                 }
                 case ADMIN_SAVE_LUNCH -> {
@@ -157,6 +156,7 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
 
         } catch (Exception e) {
             log.error("Error handling admin callback query: {}", data, e);
+            sessionStore.setRollbackOnly();
             notificationService.sendOrEditMessage(chatId, messageId,
                     "❌ Ошибка при обработке запроса. Попробуйте снова.", null);
         }
@@ -472,71 +472,61 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
     private void unblockUser(Long chatId, Integer messageId, Long userId) {
         adminService.unblockUser(userId);
         log.info("User {} unblocked", userId);
-        showUsers(chatId, messageId, 0);
+        showUsers(chatId, messageId, null, true, 0);
     }
 
     private void blockUser(Long chatId, Integer messageId, Long userId) {
         adminService.blockUser(userId);
         log.info("User {} blocked", userId);
-        showUsers(chatId, messageId, 0);
+        showUsers(chatId, messageId, null, true, 0);
     }
 
     private void showStats(Long chatId, Integer messageId) {
-        int totalUsers = adminService.getAllUsers().size();
-        int blockedUsers = adminService.getBlockedUsers().size();
-        int totalUsersUnique = adminService.getAllUsers().stream()
-                .filter(user -> user.getTelegramId() != null)
-                .toList().size();
-        int totalAppointments = adminService.getAllAppointments().size();
-        int totalActiveAppointments = adminService.getAllActiveAppointments().size();
+        UserRepository.AdminStats counters = adminService.getStats();
 
         String stats = "📊 Статистика пользователей:\n" +
-                "• 👥 Всего пользователей: " + totalUsers + "\n" +
-                "• 👥 Уникальных пользователей: " + totalUsersUnique + "\n" +
-                "• 🚫 Заблокированных: " + blockedUsers + "\n" +
-                "• ✅ Активных записей: " + totalActiveAppointments + "\n" +
-                "• 📆 Записей за всё время: " + totalAppointments;
+                "• 👥 Всего пользователей: " + counters.getTotalUsers() + "\n" +
+                "• 👥 Уникальных пользователей: " + counters.getTelegramUsers() + "\n" +
+                "• 🚫 Заблокированных: " + counters.getBlockedUsers() + "\n" +
+                "• ✅ Активных записей: " + counters.getActiveAppointments() + "\n" +
+                "• 📆 Записей за всё время: " + counters.getTotalAppointments();
         notificationService.sendOrEditMessage(chatId, messageId, stats, adminKeyboard.getMainAdminMenu());
     }
 
-    private void showUsers(Long chatId, Integer messageId, int page) {
-        List<User> users = adminService.getAllUsers();
+    // Курсор в callback: направление (a — после, b — до), id крайнего пользователя и номер страницы: a42_3
+    private void showUsersPage(Long chatId, Integer messageId, String data, String prefix) {
+        int from = CallbackArgs.argOffset(data, prefix);
+        int separator = data.indexOf('_', from);
+        char direction = from < data.length() ? data.charAt(from) : ' ';
+        if ((direction != 'a' && direction != 'b') || separator < 0) {
+            showUsers(chatId, messageId, null, true, 0); // кнопка из старого сообщения
+            return;
+        }
+        long cursorId = Long.parseLong(data, from + 1, separator, 10);
+        int page = Integer.parseInt(data, separator + 1, data.length(), 10);
+        showUsers(chatId, messageId, cursorId, direction == 'a', page);
+    }
+
+    private void showUsers(Long chatId, Integer messageId, Long cursorId, boolean forward, int page) {
+        AdminService.UsersPage usersPage = adminService.getUsersPage(cursorId, forward, PAGE_SIZE_FIVE);
+        List<User> users = usersPage.users();
 
         if (users.isEmpty()) {
             notificationService.sendOrEditMessage(chatId, messageId, "Пользователей пока нет.",
                     adminKeyboard.getMainAdminMenu());
             return;
         }
-        List<User> telegramUsers = users.stream()
-                .filter(user -> user.getTelegramId() != null)
-                .toList();
-        List<User> sortedUsers = telegramUsers.stream()
-                .sorted(Comparator.comparing(
-                        user -> {
-                            String name = user.getFirstName();
-                            if (name == null || name.trim().isEmpty()) {
-                                return user.getUsername() != null ? user.getUsername() : "";
-                            }
-                            return name;
-                        },
-                        String.CASE_INSENSITIVE_ORDER
-                ))
-                .collect(Collectors.toList());
-
-        int totalPages = (int) Math.ceil((double) sortedUsers.size() / PAGE_SIZE_FIVE);
-        if (page < 0) page = 0;
-        if (page >= totalPages) page = totalPages - 1;
-
-        int start = page * PAGE_SIZE_FIVE;
-        int end = Math.min(start + PAGE_SIZE_FIVE, sortedUsers.size());
-        List<User> subList = sortedUsers.subList(start, end);
+        if (!usersPage.hasPrevious()) {
+            page = 0; // вернулись к началу списка
+        }
 
-        InlineKeyboardMarkup markup = adminKeyboard.getUsersListKeyboard(subList, page, totalPages);
+        InlineKeyboardMarkup markup = adminKeyboard.getUsersListKeyboard(users, page,
+                usersPage.hasPrevious(), usersPage.hasNext());
 
-        StringBuilder sb = new StringBuilder("👥 Список пользователей (")
-                .append(page + 1).append("/").append(totalPages).append("):\n\n");
+        StringBuilder sb = new StringBuilder("👥 Список пользователей (стр. ")
+                .append(page + 1).append("):\n\n");
 
-        for (User u : subList) {
+        for (User u : users) {
             sb.append("• ").append(u.getFirstName())
                     .append(" (@").append(u.getUsername() != null ? u.getUsername() : "нет").append(")")
                     .append(u.getIsBlocked() ? " 🚫" : " ✅")
@@ -586,18 +576,10 @@ public class AdminCallbackHandlerImpl implements AdminCallbackHandler {
 
     private void sendDateSelectionForAdmin(Long chatId) {
         LocalDate today = LocalDate.now();
-        List<LocalDate> availableDates = new ArrayList<>();
-        for (int i = 0; i < 14; i++) { // даём больше дней админу
-            LocalDate date = today.plusDays(i);
-            if (appointmentService.isWorkingDay(date)) {
-                List<LocalDateTime> slots = appointmentService.getAvailableTimeSlots(date.atStartOfDay());
-                if (!slots.isEmpty()) {
-                    availableDates.add(date);
-                }
-            }
-        }
+        // даём больше дней админу
+        Map<LocalDate, Integer> freeSlots = appointmentService.getAvailableSlotCounts(today, today.plusDays(13));
 
-        InlineKeyboardMarkup markup = keyboardFactory.dateSelectionKeyboard(availableDates, UserRole.ADMIN);
+        InlineKeyboardMarkup markup = keyboardFactory.dateSelectionKeyboard(freeSlots, UserRole.ADMIN);
         notificationService.sendOrEditMessage(chatId, null, "📅 Выберите дату для клиента:", markup);
     }
 
@@ -8,11 +8,12 @@ import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import ru.bot.handler.AdminCallbackHandler;
 import ru.bot.handler.PaymentCallbackHandler;
 import ru.bot.handler.UserCallBackHandler;
-import ru.model.enums.CallbackPaymentType;
 import ru.model.enums.CallbackType;
+import ru.model.enums.RateLimitAction;
 import ru.service.FloodProtectionService;
 import ru.service.NotificationService;
 import ru.service.UserService;
+import ru.service.session.SessionStore;
 
 
 @Slf4j
@@ -27,6 +28,7 @@ public class CallbackQueryHandler {
     private final UserCallBackHandler userCallbackHandler;
     private final FloodProtectionService floodProtectionService;
     private final PaymentCallbackHandler paymentCallbackHandler;
+    private final SessionStore sessionStore;
 
     public void handleCallbackQuery(CallbackQuery callbackQuery) {
         String data = callbackQuery.getData();
@@ -34,7 +36,10 @@ public class CallbackQueryHandler {
         Integer messageId = callbackQuery.getMessage().getMessageId();
         Long userId = callbackQuery.getFrom().getId();
 
-        if (floodProtectionService.isFloodDetected(userId, data)) {
+        RateLimitAction action = data != null && data.startsWith("payment:")
+                ? RateLimitAction.PAYMENT
+                : RateLimitAction.CALLBACK;
+        if (floodProtectionService.isFloodDetected(userId, data, action)) {
             log.warn("Флуд защита сработала для пользователя {} в коллбэке", userId);
             notificationService.sendOrEditMessage(chatId, messageId,
                     "❌ Вы слишком часто отправляете запросы. Пожалуйста, подождите.", null);
@@ -52,8 +57,8 @@ public class CallbackQueryHandler {
             }
 
             if (isAdmin && data != null && data.startsWith("payment:")) {
-                CallbackPaymentType paymentType = CallbackPaymentType.fromString(data);
-                log.debug("Routing to PaymentHandler: {}", paymentType);
+                // Тип платежного коллбэка определяет сам PaymentCallbackHandler — здесь только маршрут по префиксу
+                log.debug("Routing to PaymentHandler: {}", data);
                 paymentCallbackHandler.handlePaymentCallback(callbackQuery);
                 return;
             }
@@ -61,6 +66,7 @@ public class CallbackQueryHandler {
             userCallbackHandler.handleUserCallback(callbackQuery);
         } catch (Exception e) {
             log.error("Ошибка обработки обратного запроса: {}", data, e);
+            sessionStore.setRollbackOnly();
             notificationService.sendOrEditMessage(chatId, messageId,
                     "❌ Произошла ошибка. Попробуйте снова.", null);
         }
@@ -13,10 +13,17 @@ import ru.service.NotificationService;
 import ru.service.PaymentService;
 import ru.service.PaymentSessionService;
 import ru.service.UserSessionService;
+import ru.service.export.CsvExporter;
+import ru.repository.PaymentRepository;
 import ru.util.AdminKeyboard;
+import ru.util.ClientStatsText;
 import ru.util.KeyboardFactory;
+import ru.service.session.SessionStore;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -26,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static ru.util.BotConstants.DATE_FORMAT;
 import static ru.util.BotConstants.TIME_FORMAT;
@@ -34,12 +42,16 @@ import static ru.util.BotConstants.TIME_FORMAT;
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
+    private static final int TOP_CLIENTS_PAGE_SIZE = 10;
+
     private final NotificationService notificationService;
     private final PaymentService paymentService;
     private final PaymentSessionService paymentSessionService;
     private final AdminKeyboard adminKeyboard;
     private final UserSessionService userSessionService;
     private final KeyboardFactory keyboardFactory;
+    private final SessionStore sessionStore;
+    private final CsvExporter csvExporter;
 
     @Override
     public void handlePaymentCallback(CallbackQuery callbackQuery) {
@@ -47,13 +59,12 @@ public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
         Long chatId = callbackQuery.getMessage().getChatId();
         Integer messageId = callbackQuery.getMessage().getMessageId();
 
-        log.debug("Обработка callback платежа: {}, type: {}", data, CallbackType.fromString(data));
+        log.debug("Обработка callback платежа: {}", data);
         handlePaymentCallback(chatId, messageId, data);
     }
 
     private void handlePaymentCallback(Long chatId, Integer messageId, String data) {
         try {
-            log.debug("🔍 Обработка callback: {}", data);
             CallbackPaymentType callbackPaymentType = CallbackPaymentType.fromString(data);
 
             log.debug("🔍 Определен тип: {}", callbackPaymentType);
@@ -75,10 +86,21 @@ public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
                 case PAYMENT_CURRENT_MONTH_STATS -> showCurrentMonthStats(chatId, messageId);
                 case PAYMENT_TOTAL_STATS -> showTotalIncome(chatId, messageId);
                 case PAYMENT_CUSTOM_PERIOD -> showCustomPeriodForm(chatId, messageId);
+                case PAYMENT_EXPORT_MENU -> notificationService.sendOrEditMessage(chatId, messageId,
+                        "📋 *Выгрузка в CSV*\n\nВыберите данные и период:", adminKeyboard.getExportMenu());
+                case PAYMENT_EXPORT -> export(chatId, messageId, data);
+                case PAYMENT_CLIENT_STATS -> showTopClients(chatId, messageId, 0);
+                case PAYMENT_CLIENT_TOP_PAGE -> showTopClients(chatId, messageId, callbackPaymentType.intArg(data));
+                case PAYMENT_CLIENT_SEARCH -> showClientSearchForm(chatId, messageId);
+                case PAYMENT_CLIENT_BY_PHONE -> showClientCard(chatId, messageId, paymentService.getClientStatsByPhone(
+                        data.substring(callbackPaymentType.getPrefix().length())));
+                case PAYMENT_CLIENT_BY_USER -> showClientCard(chatId, messageId,
+                        paymentService.getClientStatsByUser(callbackPaymentType.longArg(data)));
                 case UNKNOWN -> log.warn("Неизвестный тип callback в PaymentCallBack: {}", data);
             }
         } catch (Exception e) {
             log.error("Ошибка при обработке платежа: {}", e.getMessage(), e);
+            sessionStore.setRollbackOnly();
             notificationService.sendOrEditMessage(chatId, messageId,
                     "❌ Ошибка при обработке платежа. Попробуйте снова.", null);
         }
@@ -131,8 +153,7 @@ public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
     private void handlePaymentDateSelection(Long chatId, Integer messageId, String data) {
         log.info("Выбор даты");
         try {
-            String dateStr = data.substring("payment:date_".length());
-            LocalDate selectedDate = LocalDate.parse(dateStr);
+            LocalDate selectedDate = CallbackPaymentType.PAYMENT_SELECT_DATE.dateArg(data);
             paymentSessionService.setServiceDate(chatId, selectedDate.atStartOfDay());
             paymentSessionService.setPaymentState(chatId, PaymentState.AWAITING_SERVICE_TIME);
             sendTimeSelectionForPayment(chatId, messageId, selectedDate);
@@ -174,7 +195,7 @@ public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
             request.setServiceType(paymentSessionService.getServiceType(chatId));
             request.setServiceDate(paymentSessionService.getServiceDate(chatId));
             request.setClientPhone(paymentSessionService.getClientPhone(chatId));
-            request.setClientPhone(paymentSessionService.getClientPhone(chatId));
+            request.setClientName(paymentSessionService.getClientName(chatId));
             Payment payment = paymentService.createPayment(request, messageId);
             paymentSessionService.clearPaymentState(chatId);
             notificationService.sendOrEditMessage(chatId, messageId,
@@ -187,6 +208,66 @@ public class PaymentCallbackHandlerImpl implements PaymentCallbackHandler {
         }
     }
 
+    private void showTopClients(Long chatId, Integer messageId, int page) {
+        log.info("Показ топа клиентов, страница {}", page);
+        paymentSessionService.clearPaymentState(chatId); // выход из поиска по телефону
+        PaymentService.TopClientsPage top = paymentService.getTopClients(page, TOP_CLIENTS_PAGE_SIZE);
+        String text = top.clients().isEmpty() && top.page() == 0
+                ? "👥 *Топ клиентов*\n\nПлатежей с телефоном клиента пока нет"
+                : "👥 *Топ клиентов по сумме платежей*";
+        notificationService.sendOrEditMessage(chatId, messageId, text,
+                adminKeyboard.getTopClientsKeyboard(top.clients(), top.page(), TOP_CLIENTS_PAGE_SIZE, top.hasNext()));
+    }
+
+    private void showClientSearchForm(Long chatId, Integer messageId) {
+        paymentSessionService.setPaymentState(chatId, PaymentState.AWAITING_CLIENT_STATS_PHONE);
+        notificationService.sendOrEditMessage(chatId, messageId,
+                "🔍 *Поиск клиента*\n\nВведите номер телефона в формате +79991234567 или /cancel:",
+                adminKeyboard.getClientCardKeyboard());
+    }
+
+    private void showClientCard(Long chatId, Integer messageId, Optional<PaymentRepository.ClientStats> stats) {
+        notificationService.sendOrEditMessage(chatId, messageId,
+                stats.map(ClientStatsText::card).orElse("👤 У клиента пока нет платежей"),
+                adminKeyboard.getClientCardKeyboard());
+    }
+
+    // Файл пишется потоком из БД во временный каталог и удаляется после отправки
+    private void export(Long chatId, Integer messageId, String data) throws IOException {
+        String[] args = data.substring(CallbackPaymentType.PAYMENT_EXPORT.getPrefix().length()).split("_");
+        boolean payments = "payments".equals(args[0]);
+        boolean all = "all".equals(args[1]);
+        // Месяц целиком [1-е число, 1-е следующего): в текущем месяце это и будущие записи
+        LocalDate from = LocalDate.now().withDayOfMonth(1);
+        if ("prev".equals(args[1])) {
+            from = from.minusMonths(1);
+        }
+        LocalDate to = from.plusMonths(1);
+        log.info("Выгрузка {} за {}", args[0], all ? "всё время" : from + " — " + to.minusDays(1));
+
+        Path file;
+        if (all) {
+            file = payments ? csvExporter.exportAllPayments() : csvExporter.exportAllAppointments();
+        } else {
+            file = payments ? csvExporter.exportPayments(from, to) : csvExporter.exportAppointments(from, to);
+        }
+        String fileName = String.format("%s_%s.csv", args[0], all ? "all" : from.toString().substring(0, 7));
+        String caption = (payments ? "💵 Платежи" : "📋 Записи") + (all ? " за всё время"
+                : " с " + from.format(DATE_FORMAT) + " по " + to.minusDays(1).format(DATE_FORMAT));
+        notificationService.sendDocumentAsync(chatId, file, fileName, caption)
+                .whenComplete((message, error) -> {
+                    if (error != null) {
+                        log.error("Не удалось отправить выгрузку в чат {}: {}", chatId, error.getMessage());
+                    }
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        log.warn("Не удалось удалить временный файл {}: {}", file, e.getMessage());
+                    }
+                });
+        notificationService.sendOrEditMessage(chatId, messageId, "📤 Выгрузка готова, файл отправляется", adminKeyboard.getExportMenu());
+    }
+
     private void showCustomPeriodForm(Long chatId, Integer messageId) {
         log.info("Показ формы ввода периода для статистики");
         paymentSessionService.setPaymentState(chatId, PaymentState.AWAITING_STATS_START_DATE);
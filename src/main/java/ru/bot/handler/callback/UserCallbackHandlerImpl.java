@@ -10,7 +10,10 @@ import ru.bot.handler.TextMessageHandler;
 import ru.bot.handler.UserCallBackHandler;
 import ru.model.Appointment;
 import ru.model.enums.*;
+import ru.conf.RateLimitProperties;
 import ru.service.*;
+import ru.service.hold.SlotHoldService;
+import ru.service.session.SessionStore;
 import ru.util.KeyboardFactory;
 
 import java.time.LocalDate;
@@ -20,7 +23,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import static ru.service.impl.FloodProtectionServiceImpl.APPOINTMENT_START_WINDOW_MINUTES;
 import static ru.util.BotConstants.*;
 
 @Component
@@ -35,6 +37,9 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
     private final AdminService adminService;
     private final UserSessionService userSessionService;
     private final FloodProtectionService floodProtectionService;
+    private final SessionStore sessionStore;
+    private final RateLimitProperties rateLimitProperties;
+    private final SlotHoldService slotHoldService;
 
     public static final int PAGE_SIZE_FIVE = 5;
 
@@ -49,10 +54,10 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
             return;
         }
 
-        log.debug("Processing user callback: data='{}', type={}", data, CallbackType.fromString(data));
+        CallbackType type = CallbackType.fromString(data);
+        log.debug("Processing user callback: data='{}', type={}", data, type);
 
         try {
-            CallbackType type = CallbackType.fromString(data);
             switch (type) {
                 case DATE -> handleDateSelection(chatId, messageId, data);
                 case TIME -> handleTimeSelection(chatId, messageId, data);
@@ -66,7 +71,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
                 case HISTORY -> showPastAppointments(chatId, messageId, 0);
                 case HISTORY_PAGE -> {
                     try {
-                        int page = Integer.parseInt(data.substring("history_page_".length()));
+                        int page = type.intArg(data);
                         showPastAppointments(chatId, messageId, page);
                     } catch (NumberFormatException e) {
                         log.warn("Invalid page number in callback: {}", data);
@@ -79,6 +84,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
             }
         } catch (Exception e) {
             log.error("Error handling user callback query: {}", data, e);
+            sessionStore.setRollbackOnly();
             notificationService.sendOrEditMessage(chatId, messageId,
                     "❌ Произошла ошибка. Попробуйте снова.", null);
         }
@@ -90,6 +96,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
                 .stream()
                 .filter(slot -> slot.isAfter(LocalDateTime.now()))
                 .toList();
+        availableSlots = slotHoldService.withoutHeldByOthers(chatId, availableSlots);
 
         InlineKeyboardMarkup markup = keyboardFactory.timeSelectionKeyboard(date, availableSlots, UserRole.USER);
 
@@ -167,7 +174,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
     }
 
     private void handleDateSelection(Long chatId, Integer messageId, String data) {
-        LocalDate selectedDate = LocalDate.parse(data.substring(5));
+        LocalDate selectedDate = CallbackType.DATE.dateArg(data);
 
         String role = userSessionService.getRole(chatId);
         AdminAppointmentState adminState = appointmentService.getAdminState(chatId);
@@ -186,6 +193,10 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
     private void handleTimeSelection(Long chatId, Integer messageId, String data) {
         LocalDateTime selectedTime = LocalDateTime.parse(data.substring(5));
         notificationService.deleteMessage(chatId, messageId);
+        LocalDateTime previousTime = appointmentService.getPendingDate(chatId);
+        if (previousTime != null && !previousTime.equals(selectedTime)) {
+            slotHoldService.release(chatId, previousTime);
+        }
         appointmentService.setPendingDate(chatId, selectedTime);
         String role = userSessionService.getRole(chatId);
         AdminAppointmentState adminState = appointmentService.getAdminState(chatId);
@@ -214,6 +225,18 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
             }
         }
 
+        // Держим слот за клиентом, пока он вводит имя и телефон
+        if (!slotHoldService.hold(chatId, selectedTime)) {
+            appointmentService.clearPendingDate(chatId);
+            notificationService.sendMessage(chatId, "⏳ Это время только что выбрал другой клиент. Выберите другое.");
+            if (isAdminFlow) {
+                adminService.sendTimeSelectionForAdmin(chatId, null, selectedTime.toLocalDate());
+            } else {
+                sendTimeSelection(chatId, null, selectedTime.toLocalDate());
+            }
+            return;
+        }
+
         if (isAdminFlow) {
             deletePendingMessage(chatId, messageId);
             appointmentService.setAdminState(chatId, AdminAppointmentState.ADM_AWAITING_NAME);
@@ -249,7 +272,8 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
         if (!floodProtectionService.canStartAppointmentProcess(userId)) {
             notificationService.sendOrEditMessage(chatId, messageId,
                     "⚠️ Слишком много попыток начать запись. Подождите " +
-                            APPOINTMENT_START_WINDOW_MINUTES + " минут и попробуйте снова.", null);
+                            rateLimitProperties.getBookingStart().getWindow().toMinutes() +
+                            " минут и попробуйте снова.", null);
             return;
         }
         textMessageHandler.startAppointmentProcess(chatId, messageId);
@@ -264,7 +288,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
     }
 
     private void handleCancelAppointment(Long chatId, Integer messageId, String data) {
-        Long appointmentId = Long.parseLong(data.substring(7));
+        Long appointmentId = CallbackType.CANCEL.longArg(data);
         Appointment app = appointmentService.findById(appointmentId);
 
         if (app == null) {
@@ -295,6 +319,7 @@ public class UserCallbackHandlerImpl implements UserCallBackHandler {
             appointmentService.clearPendingMessageId(chatId);
         }
 
+        slotHoldService.release(chatId, appointmentService.getPendingDate(chatId));
         textMessageHandler.sendDateSelection(chatId, null);
         appointmentService.clearUserState(chatId);
     }
@@ -0,0 +1,52 @@
+package ru.bot.webhook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import ru.conf.WebhookProperties;
+
+import java.util.Map;
+
+/**
+ * Redis Stream входящих апдейтов, разбитый на партиции по chatId.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+public class UpdateStream {
+    public static final String GROUP = "bot";
+    public static final String FIELD_UPDATE = "update";
+    private static final String KEY_PREFIX = "tg:updates:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WebhookProperties webhookProperties;
+
+    public void publish(Long chatId, String updateJson) {
+        String key = streamKey(partitionOf(chatId));
+        stringRedisTemplate.opsForStream().add(
+                StreamRecords.newRecord().in(key).ofMap(Map.of(FIELD_UPDATE, updateJson)),
+                XAddOptions.maxlen(webhookProperties.getStreamMaxLength()).approximateTrimming(true));
+    }
+
+    public int partitionOf(Long chatId) {
+        return (int) Math.floorMod(chatId, (long) webhookProperties.getPartitions());
+    }
+
+    public String streamKey(int partition) {
+        return KEY_PREFIX + partition;
+    }
+
+    public String leaseKey(int partition) {
+        return KEY_PREFIX + partition + ":owner";
+    }
+
+    // Живые инстансы воркера: ZSET instanceId -> время последнего обновления аренды
+    public String instancesKey() {
+        return KEY_PREFIX + "instances";
+    }
+}
@@ -0,0 +1,238 @@
+package ru.bot.webhook;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.bot.UpdateConsumer;
+import ru.conf.WebhookProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Забирает апдейты из партиций {@link UpdateStream}. Каждой партицией в каждый момент владеет
+ * ровно один инстанс (аренда в Redis), поэтому апдейты одного чата обрабатываются по порядку.
+ * Инстансы отмечаются в Redis и держат не больше своей доли партиций: лишние отпускают,
+ * когда появляется новый инстанс, и добирают, когда какой-то пропал.
+ * Запись подтверждается (XACK) только после успешного {@link UpdateConsumer#consume}; упавшая
+ * перечитывается из PEL до maxAttempts раз, неподтверждённые дочитывает следующий владелец партиции.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+public class UpdateStreamWorker {
+    private static final DefaultRedisScript<Long> RENEW_LEASE = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0""", Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0""", Long.class);
+
+    private final UpdateStream updateStream;
+    private final UpdateConsumer updateConsumer;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WebhookProperties properties;
+    private final ObjectMapper updateMapper;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+    // Партиции, чей цикл чтения ещё не завершился: новый запускаем только после выхода прежнего
+    private final Set<Integer> readingPartitions = ConcurrentHashMap.newKeySet();
+    private final Map<RecordId, Integer> failedAttempts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leaseScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService partitionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean running = true;
+
+    public UpdateStreamWorker(UpdateStream updateStream, UpdateConsumer updateConsumer,
+                              StringRedisTemplate stringRedisTemplate, WebhookProperties properties,
+                              ObjectMapper objectMapper) {
+        this.updateStream = updateStream;
+        this.updateConsumer = updateConsumer;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        this.updateMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int p = 0; p < properties.getPartitions(); p++) {
+            createGroup(updateStream.streamKey(p));
+        }
+        long period = Math.max(1, properties.getLeaseSeconds() / 3);
+        leaseScheduler.scheduleAtFixedRate(this::maintainLeases, 0, period, TimeUnit.SECONDS);
+        log.info("Webhook-воркер {} запущен, партиций: {}", instanceId, properties.getPartitions());
+    }
+
+    private void createGroup(String key) {
+        try {
+            stringRedisTemplate.opsForStream().createGroup(key, ReadOffset.from("0"), UpdateStream.GROUP);
+        } catch (RedisSystemException e) {
+            // BUSYGROUP — группа уже создана другим инстансом
+            log.debug("Группа для {} уже существует", key);
+        }
+    }
+
+    private void maintainLeases() {
+        try {
+            long leaseMillis = TimeUnit.SECONDS.toMillis(properties.getLeaseSeconds());
+            for (Integer partition : ownedPartitions) {
+                Long renewed = stringRedisTemplate.execute(RENEW_LEASE,
+                        List.of(updateStream.leaseKey(partition)), instanceId, String.valueOf(leaseMillis));
+                if (renewed == null || renewed == 0) {
+                    log.warn("Аренда партиции {} потеряна", partition);
+                    ownedPartitions.remove(partition);
+                }
+            }
+            int share = fairShare(leaseMillis);
+            // Лишние партиции отпускаем: цикл чтения дочитает текущую запись и снимет аренду сам
+            for (Integer partition : ownedPartitions) {
+                if (ownedPartitions.size() <= share) {
+                    break;
+                }
+                ownedPartitions.remove(partition);
+                log.info("Инстанс {} отдаёт партицию {}, доля {}", instanceId, partition, share);
+            }
+            for (int p = 0; p < properties.getPartitions() && ownedPartitions.size() < share; p++) {
+                if (ownedPartitions.contains(p) || readingPartitions.contains(p)) {
+                    continue;
+                }
+                Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(updateStream.leaseKey(p),
+                        instanceId, Duration.ofMillis(leaseMillis));
+                if (Boolean.TRUE.equals(acquired)) {
+                    ownedPartitions.add(p);
+                    readingPartitions.add(p);
+                    int partition = p;
+                    partitionExecutor.execute(() -> consumePartition(partition));
+                    log.info("Инстанс {} взял партицию {}", instanceId, p);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при обновлении аренды партиций", e);
+        }
+    }
+
+    // Доля партиций на инстанс: отмечаемся сами и считаем тех, кто обновлялся за время аренды
+    private int fairShare(long leaseMillis) {
+        String key = updateStream.instancesKey();
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.opsForZSet().add(key, instanceId, now);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(key, 0, now - leaseMillis);
+        Long alive = stringRedisTemplate.opsForZSet().zCard(key);
+        int instances = alive == null || alive < 1 ? 1 : alive.intValue();
+        int share = (properties.getPartitions() + instances - 1) / instances;
+        return Math.min(share, properties.getMaxPartitionsPerInstance());
+    }
+
+    private void consumePartition(int partition) {
+        String key = updateStream.streamKey(partition);
+        // имя консьюмера привязано к партиции, а не к инстансу: новый владелец
+        // видит в своём PEL всё, что не успел подтвердить прежний
+        Consumer consumer = Consumer.from(UpdateStream.GROUP, "partition-" + partition);
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(properties.getBatchSize())
+                .block(Duration.ofSeconds(2));
+        try {
+            readPartition(partition, key, consumer, options);
+        } finally {
+            // партицию отдали или потеряли — снимаем аренду, если она ещё наша; при остановке снимет stop()
+            if (running) {
+                stringRedisTemplate.execute(RELEASE_LEASE, List.of(updateStream.leaseKey(partition)), instanceId);
+            }
+            readingPartitions.remove(partition);
+        }
+    }
+
+    private void readPartition(int partition, String key, Consumer consumer, StreamReadOptions options) {
+        boolean pendingFirst = true;
+        while (running && ownedPartitions.contains(partition)) {
+            try {
+                ReadOffset offset = pendingFirst ? ReadOffset.from("0") : ReadOffset.lastConsumed();
+                List<MapRecord<String, Object, Object>> records =
+                        stringRedisTemplate.opsForStream().read(consumer, options, StreamOffset.create(key, offset));
+                if (records == null || records.isEmpty()) {
+                    pendingFirst = false;
+                    continue;
+                }
+                for (MapRecord<String, Object, Object> record : records) {
+                    if (!running || !ownedPartitions.contains(partition)) {
+                        return;
+                    }
+                    process(record);
+                    stringRedisTemplate.opsForStream().acknowledge(key, UpdateStream.GROUP, record.getId());
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                // неподтверждённая запись будет перечитана из PEL раньше следующих
+                log.error("Ошибка обработки партиции {}", partition, e);
+                pendingFirst = true;
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void process(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> value = record.getValue();
+        Object json = value.get(UpdateStream.FIELD_UPDATE);
+        Update update;
+        try {
+            update = updateMapper.readValue(String.valueOf(json), Update.class);
+        } catch (Exception e) {
+            log.error("Пропускаем нечитаемую запись {}: {}", record.getId(), json, e);
+            return;
+        }
+        try {
+            updateConsumer.consume(update);
+        } catch (RuntimeException e) {
+            int attempts = failedAttempts.merge(record.getId(), 1, Integer::sum);
+            if (attempts < properties.getMaxAttempts()) {
+                throw e;
+            }
+            log.error("Апдейт {} не обработан за {} попыток, пропускаем", update.getUpdateId(), attempts);
+        }
+        failedAttempts.remove(record.getId());
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        leaseScheduler.shutdownNow();
+        partitionExecutor.shutdown();
+        try {
+            partitionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Integer partition : ownedPartitions) {
+            stringRedisTemplate.execute(RELEASE_LEASE, List.of(updateStream.leaseKey(partition)), instanceId);
+        }
+        ownedPartitions.clear();
+        stringRedisTemplate.opsForZSet().remove(updateStream.instancesKey(), instanceId);
+    }
+}
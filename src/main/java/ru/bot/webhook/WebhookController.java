@@ -0,0 +1,55 @@
+package ru.bot.webhook;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.bot.Updates;
+import ru.conf.WebhookProperties;
+
+@Slf4j
+@RestController
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+public class WebhookController {
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final UpdateStream updateStream;
+    private final WebhookProperties webhookProperties;
+    private final ObjectMapper updateMapper;
+
+    public WebhookController(UpdateStream updateStream, WebhookProperties webhookProperties,
+                             ObjectMapper objectMapper) {
+        this.updateStream = updateStream;
+        this.webhookProperties = webhookProperties;
+        // Telegram регулярно добавляет новые поля в Update
+        this.updateMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @PostMapping("${telegram.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> onUpdate(@RequestHeader(value = SECRET_HEADER, required = false) String secret,
+                                         @RequestBody String body) {
+        String expected = webhookProperties.getSecretToken();
+        if (StringUtils.hasText(expected) && !expected.equals(secret)) {
+            log.warn("Вебхук с неверным секретом отклонён");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Update update;
+        try {
+            update = updateMapper.readValue(body, Update.class);
+        } catch (Exception e) {
+            // повтор от Telegram не поможет — подтверждаем и пропускаем
+            log.error("Не удалось разобрать апдейт из вебхука: {}", body, e);
+            return ResponseEntity.ok().build();
+        }
+        updateStream.publish(Updates.chatIdOf(update), body);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.bot.webhook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.conf.WebhookProperties;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+public class WebhookRegistrar {
+    private final TelegramClient telegramClient;
+    private final WebhookProperties webhookProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerWebhook() {
+        if (!StringUtils.hasText(webhookProperties.getUrl())) {
+            log.warn("telegram.webhook.url не задан — вебхук не регистрируется");
+            return;
+        }
+        try {
+            telegramClient.execute(SetWebhook.builder()
+                    .url(webhookProperties.getUrl() + webhookProperties.getPath())
+                    .secretToken(StringUtils.hasText(webhookProperties.getSecretToken())
+                            ? webhookProperties.getSecretToken() : null)
+                    .build());
+            log.info("Вебхук зарегистрирован: {}{}", webhookProperties.getUrl(), webhookProperties.getPath());
+        } catch (TelegramApiException e) {
+            log.error("Не удалось зарегистрировать вебхук", e);
+        }
+    }
+}
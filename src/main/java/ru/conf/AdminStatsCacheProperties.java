@@ -0,0 +1,14 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cache.admin-stats")
+@Data
+public class AdminStatsCacheProperties {
+    private Duration ttl = Duration.ofSeconds(30); // изменения с других инстансов видны не позже чем через ttl
+}
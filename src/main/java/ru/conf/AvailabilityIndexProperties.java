@@ -0,0 +1,15 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "booking.index")
+@Data
+public class AvailabilityIndexProperties {
+    private int horizonDays = 60;                  // сколько дней вперёд загружаем при старте
+    private Duration ttl = Duration.ofMinutes(10); // день перечитывается из БД не реже этого
+}
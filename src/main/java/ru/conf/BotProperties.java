@@ -10,5 +10,6 @@ import org.springframework.context.annotation.Configuration;
 public class BotProperties {
     private String token;
     private String username;
+    private String mode = "longpolling"; // longpolling | webhook
 }
 
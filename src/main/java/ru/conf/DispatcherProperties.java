@@ -0,0 +1,13 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "telegram.dispatcher")
+@Data
+public class DispatcherProperties {
+    private int maxInFlightChats = 64;  // сколько чатов обрабатывается одновременно
+    private int queueCapacityPerChat = 32; // очередь апдейтов одного чата
+}
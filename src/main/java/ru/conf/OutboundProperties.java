@@ -0,0 +1,21 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "telegram.outbound")
+@Data
+public class OutboundProperties {
+    private int globalPerSecond = 30;   // общий лимит Bot API
+    private int perChatPerSecond = 1;   // лимит на один чат
+    private int perChatBurst = 3;       // короткая пачка в один чат (удалить + отправить + отредактировать)
+    private int maxInFlight = 16;       // одновременных HTTP-запросов к Telegram
+    private int maxRetries = 3;         // повторов после 429
+    private int editCacheSize = 10_000; // сколько сообщений помним для пропуска одинаковых редактирований
+    private Duration chatIdle = Duration.ofMinutes(1); // через сколько забываем ведро неактивного чата
+    private Duration awaitTimeout = Duration.ofSeconds(30); // сколько ждём результат, когда он нужен сразу
+}
@@ -0,0 +1,13 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payments.rollup")
+@Data
+public class PaymentRollupProperties {
+    private String reconcileCron = "0 30 3 * * *"; // когда пересчитываем суммы по сырым платежам
+    private int reconcileDays = 7;                 // за сколько последних дней
+}
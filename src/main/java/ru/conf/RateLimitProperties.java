@@ -0,0 +1,39 @@
+package ru.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import ru.model.enums.RateLimitAction;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "flood")
+@Data
+public class RateLimitProperties {
+    private Limit text = new Limit(25, Duration.ofMinutes(1));
+    private Limit callback = new Limit(25, Duration.ofMinutes(1));
+    private Limit bookingStart = new Limit(5, Duration.ofMinutes(2)); // начало процесса записи
+    private Limit payment = new Limit(30, Duration.ofMinutes(1));
+    private Duration banDuration = Duration.ofMinutes(5); // бан после превышения лимита сообщений
+
+    public Limit of(RateLimitAction action) {
+        return switch (action) {
+            case TEXT -> text;
+            case CALLBACK -> callback;
+            case BOOKING_START -> bookingStart;
+            case PAYMENT -> payment;
+        };
+    }
+
+    // Не больше requests запросов за любое скользящее окно window
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int requests;
+        private Duration window;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "reminders")
+@Data
+public class ReminderProperties {
+    private Duration pollInterval = Duration.ofMinutes(5);    // страховочный опрос просроченных напоминаний
+    private int batchSize = 50;                               // строк за одну выборку
+    private int maxAttempts = 5;                              // после стольких ошибок напоминание помечается FAILED
+    private Duration retryDelay = Duration.ofMinutes(1);      // пауза перед повтором, растёт с каждой попыткой
+    private Duration horizon = Duration.ofHours(3);           // сколько времени вперёд держим в колесе таймеров
+    private Duration refillInterval = Duration.ofMinutes(30); // как часто догружаем колесо из таблицы
+    private Duration tick = Duration.ofSeconds(1);            // точность колеса таймеров
+    private Duration sendLease = Duration.ofMinutes(2);       // на сколько забранное напоминание скрыто от других инстансов
+}
@@ -0,0 +1,14 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "booking.hold")
+@Data
+public class SlotHoldProperties {
+    private Duration ttl = Duration.ofMinutes(5); // сколько слот держится за клиентом, пока он вводит имя и телефон
+}
@@ -1,5 +1,7 @@
 package ru.conf;
 
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
@@ -9,13 +11,22 @@ import org.telegram.telegrambots.meta.generics.TelegramClient;
 public class TelegramConfig {
 
     private final BotProperties botProperties;
+    private final OutboundProperties outboundProperties;
 
-    public TelegramConfig(BotProperties botProperties) {
+    public TelegramConfig(BotProperties botProperties, OutboundProperties outboundProperties) {
         this.botProperties = botProperties;
+        this.outboundProperties = outboundProperties;
     }
 
     @Bean
     public TelegramClient telegramClient() {
-        return new OkHttpTelegramClient(botProperties.getToken());
+        // По умолчанию OkHttp держит не больше 5 запросов на хост — этого мало для executeAsync
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(outboundProperties.getMaxInFlight());
+        dispatcher.setMaxRequestsPerHost(outboundProperties.getMaxInFlight());
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .build();
+        return new OkHttpTelegramClient(httpClient, botProperties.getToken());
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cache.user-access")
+@Data
+public class UserAccessCacheProperties {
+    private long maxSize = 10_000;             // сколько пользователей держим в памяти
+    private Duration ttl = Duration.ofMinutes(5); // страховка на случай пропущенной инвалидации
+}
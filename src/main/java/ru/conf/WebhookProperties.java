@@ -0,0 +1,21 @@
+package ru.conf;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "telegram.webhook")
+@Data
+public class WebhookProperties {
+    private String url;                      // публичный адрес, который регистрируется в Telegram
+    private String path = "/telegram/webhook";
+    private String secretToken;              // X-Telegram-Bot-Api-Secret-Token
+    private int partitions = 64;             // число стримов, по которым раскладываются чаты; столько чатов
+                                             // кластер обрабатывает одновременно, как max-in-flight-chats
+    private int maxPartitionsPerInstance = 64; // потолок; обычно инстанс берёт долю partitions / живые инстансы
+    private int maxAttempts = 3;             // сколько раз пробуем обработать апдейт, прежде чем пропустить
+    private long leaseSeconds = 15;          // аренда партиции инстансом
+    private long streamMaxLength = 10_000;
+    private int batchSize = 20;
+}
@@ -0,0 +1,53 @@
+package ru.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.model.enums.ReminderStatus;
+import ru.model.enums.ReminderType;
+
+import java.time.LocalDateTime;
+
+@ToString
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "reminders")
+/**  Напоминание о записи (outbox)  **/
+public class Reminder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "appointment_id", nullable = false)
+    @ToString.Exclude
+    Appointment appointment;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    ReminderType type;
+
+    @Column(name = "due_at", nullable = false)
+    LocalDateTime dueAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    ReminderStatus status = ReminderStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    int attempts = 0;
+
+    @Column(name = "last_error")
+    String lastError;
+
+    @Column(name = "created_at", updatable = false, insertable = false)
+    LocalDateTime createdAt;
+}
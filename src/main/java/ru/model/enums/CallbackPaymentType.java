@@ -1,8 +1,10 @@
 package ru.model.enums;
 
 import lombok.Getter;
+import ru.util.CallbackArgs;
+import ru.util.PrefixTrie;
 
-import java.util.Arrays;
+import java.time.LocalDate;
 
 @Getter
 public enum CallbackPaymentType {
@@ -23,6 +25,12 @@ public enum CallbackPaymentType {
     PAYMENT_SELECT_START_DATE("payment:select:start:date_"),
     PAYMENT_SELECT_END_DATE("payment:select:end:date_"),
     PAYMENT_CLIENT_STATS("payment:client:stats"),
+    PAYMENT_CLIENT_TOP_PAGE("payment:client:top_"),
+    PAYMENT_CLIENT_SEARCH("payment:client:search"),
+    PAYMENT_CLIENT_BY_PHONE("payment:client:phone_"),
+    PAYMENT_CLIENT_BY_USER("payment:client:user_"),
+    PAYMENT_EXPORT_MENU("payment:export:menu"),
+    PAYMENT_EXPORT("payment:export:"),
     PAYMENT_CONFIRM("payment:confirm"),
     PAYMENT_CANCEL("payment:cancel"),
     UNKNOWN("unknown");
@@ -34,14 +42,24 @@ public enum CallbackPaymentType {
     }
 
     public static CallbackPaymentType fromString(String data) {
-        if (data == null) return UNKNOWN;
-
-        // Сортируем по длине префикса (сначала самые длинные)
-        return Arrays.stream(values())
-                .filter(type -> !type.prefix.isEmpty())
-                .sorted((a, b) -> Integer.compare(b.prefix.length(), a.prefix.length()))
-                .filter(type -> data.startsWith(type.prefix))
-                .findFirst()
-                .orElse(UNKNOWN);
+        return Router.TRIE.longestPrefixMatch(data);
+    }
+
+    // Числовой аргумент после префикса: id записи, пользователя, номер страницы
+    public long longArg(String data) {
+        return CallbackArgs.parseLong(data, prefix);
+    }
+
+    public int intArg(String data) {
+        return CallbackArgs.parseInt(data, prefix);
+    }
+
+    public LocalDate dateArg(String data) {
+        return CallbackArgs.parseDate(data, prefix);
+    }
+
+    // Строится один раз при первой загрузке, после инициализации констант
+    private static final class Router {
+        private static final PrefixTrie<CallbackPaymentType> TRIE = PrefixTrie.of(values(), CallbackPaymentType::getPrefix, UNKNOWN);
     }
 }
@@ -1,8 +1,10 @@
 package ru.model.enums;
 
 import lombok.Getter;
+import ru.util.CallbackArgs;
+import ru.util.PrefixTrie;
 
-import java.util.Arrays;
+import java.time.LocalDate;
 
 @Getter
 public enum CallbackType {
@@ -57,14 +59,24 @@ public enum CallbackType {
     }
 
     public static CallbackType fromString(String data) {
-        if (data == null) return UNKNOWN;
+        return Router.TRIE.longestPrefixMatch(data);
+    }
+
+    // Числовой аргумент после префикса: id записи, пользователя, номер страницы
+    public long longArg(String data) {
+        return CallbackArgs.parseLong(data, prefix);
+    }
+
+    public int intArg(String data) {
+        return CallbackArgs.parseInt(data, prefix);
+    }
+
+    public LocalDate dateArg(String data) {
+        return CallbackArgs.parseDate(data, prefix);
+    }
 
-        // Сортируем по длине префикса (сначала самые длинные)
-        return Arrays.stream(values())
-                .filter(type -> !type.prefix.isEmpty())
-                .sorted((a, b) -> Integer.compare(b.prefix.length(), a.prefix.length()))
-                .filter(type -> data.startsWith(type.prefix))
-                .findFirst()
-                .orElse(UNKNOWN);
+    // Строится один раз при первой загрузке, после инициализации констант
+    private static final class Router {
+        private static final PrefixTrie<CallbackType> TRIE = PrefixTrie.of(values(), CallbackType::getPrefix, UNKNOWN);
     }
 }
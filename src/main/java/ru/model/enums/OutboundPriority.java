@@ -0,0 +1,8 @@
+package ru.model.enums;
+
+// Полосы исходящей очереди в порядке приоритета: ответы пользователю раньше напоминаний и рассылок
+public enum OutboundPriority {
+    INTERACTIVE,
+    REMINDER,
+    BROADCAST
+}
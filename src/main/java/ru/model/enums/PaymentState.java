@@ -9,5 +9,6 @@ public enum PaymentState {
     AWAITING_CLIENT_NAME,
     AWAITING_CONFIRMATION, // ожидание подтверждения
     AWAITING_STATS_START_DATE, // ожидание даты начала статистики
-    AWAITING_STATS_END_DATE // ожидание даты конца статистики
+    AWAITING_STATS_END_DATE, // ожидание даты конца статистики
+    AWAITING_CLIENT_STATS_PHONE // ожидание телефона для поиска клиента
 }
@@ -0,0 +1,18 @@
+package ru.model.enums;
+
+import lombok.Getter;
+
+// Классы действий, для каждого свой лимит частоты
+@Getter
+public enum RateLimitAction {
+    TEXT("text"),
+    CALLBACK("callback"),
+    BOOKING_START("booking_start"),
+    PAYMENT("payment");
+
+    private final String key;
+
+    RateLimitAction(String key) {
+        this.key = key;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.model.enums;
+
+public enum ReminderStatus {
+    PENDING,
+    SENT,
+    CANCELED,
+    FAILED,
+    EXPIRED
+}
@@ -0,0 +1,20 @@
+package ru.model.enums;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+// Напоминания о записи: за сколько до визита и с каким текстом
+@Getter
+public enum ReminderType {
+    DAY_BEFORE(Duration.ofDays(1), "📅 Напоминаем: завтра у вас запись на %s!"),
+    TWO_HOURS(Duration.ofHours(2), "⏰ Напоминаем: через 2 часа у вас запись на %s!");
+
+    private final Duration offset;
+    private final String template;
+
+    ReminderType(Duration offset, String template) {
+        this.offset = offset;
+        this.template = template;
+    }
+}
@@ -1,12 +1,18 @@
 package ru.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.model.Appointment;
 import ru.model.enums.StatusAppointment;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
 
@@ -24,8 +30,27 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByDateTimeBetweenAndStatusOrderByDateTimeAsc(LocalDateTime start, LocalDateTime end,
                                                                        StatusAppointment statusAppointment);
 
+    // Только время занятых слотов за период — для индекса занятости
+    @Query("SELECT a.dateTime FROM Appointment a WHERE a.dateTime >= :start AND a.dateTime < :end AND a.status <> :excluded")
+    List<LocalDateTime> findBookedTimes(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                        @Param("excluded") StatusAppointment excluded);
+
+    // Транзакционная advisory-блокировка слота: держится до коммита/отката, другие слоты не блокирует
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:namespace, :slot)", nativeQuery = true)
+    Integer lockSlot(@Param("namespace") int namespace, @Param("slot") int slot);
+
     Optional<Appointment> findTopByUserTelegramIdOrderByDateTimeDesc(Long chatId);
 
     Optional<Appointment> findTopByUserTelegramIdAndStatusNotOrderByDateTimeDesc(
             Long telegramId, StatusAppointment status);
+
+    // Для выгрузки: строки читаются из курсора порциями, вызывать внутри транзакции и закрывать поток
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.user"
+            + " WHERE a.dateTime >= :start AND a.dateTime < :end ORDER BY a.dateTime")
+    Stream<Appointment> streamByDateTimeRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.user ORDER BY a.dateTime")
+    Stream<Appointment> streamAll();
 }
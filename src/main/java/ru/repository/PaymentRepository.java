@@ -1,7 +1,11 @@
 package ru.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.model.Payment;
 
@@ -9,42 +13,209 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
-    @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.serviceDate >= :start AND p.serviceDate < :end")
-    BigDecimal sumAmountByDate(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    // Суммы за дни [from, to) по дневным итогам
+    @Query(value = "SELECT SUM(r.total) FROM payment_daily_rollup r WHERE r.day >= :from AND r.day < :to",
+            nativeQuery = true)
+    BigDecimal sumAmountByDays(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    @Query("SELECT SUM(p.amount) FROM Payment p")
+    @Query(value = "SELECT SUM(r.total) FROM payment_daily_rollup r", nativeQuery = true)
     BigDecimal sumAllAmounts();
 
     @Query(value = """
-            SELECT CAST(p.service_date AS DATE) AS day, SUM(p.amount) AS total
-            FROM payments p
-            WHERE p.service_date >= :start AND p.service_date < :end
-            GROUP BY CAST(p.service_date AS DATE)
-            ORDER BY day
+            SELECT r.day, r.total
+            FROM payment_daily_rollup r
+            WHERE r.day >= :from AND r.day < :to
+            ORDER BY r.day
             """, nativeQuery = true)
-    List<Object[]> findDailySumsByPeriod(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    List<Object[]> findDailySumsByPeriod(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
     @Query(value = """
-            SELECT EXTRACT(HOUR FROM p.service_date) AS hour, SUM(p.amount) AS total
-            FROM payments p
-            WHERE CAST(p.service_date AS DATE) = :date
-            GROUP BY EXTRACT(HOUR FROM p.service_date)
-            ORDER BY hour
+            SELECT r.hour, r.total
+            FROM payment_hourly_rollup r
+            WHERE r.day = :date
+            ORDER BY r.hour
             """, nativeQuery = true)
     List<Object[]> findHourlySumsByDate(@Param("date") LocalDate date);
 
+    // Пополнение итогов новым платежом — в транзакции его создания
+    @Modifying
     @Query(value = """
-            SELECT EXTRACT(HOUR FROM p.service_date) AS hour, COUNT(*) AS count, SUM(p.amount) AS total
+            INSERT INTO payment_daily_rollup (day, payments_count, total)
+            VALUES (:day, 1, :amount)
+            ON CONFLICT (day) DO UPDATE
+            SET payments_count = payment_daily_rollup.payments_count + 1,
+                total = payment_daily_rollup.total + EXCLUDED.total
+            """, nativeQuery = true)
+    void addToDailyRollup(@Param("day") LocalDate day, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO payment_hourly_rollup (day, hour, payments_count, total)
+            VALUES (:day, :hour, 1, :amount)
+            ON CONFLICT (day, hour) DO UPDATE
+            SET payments_count = payment_hourly_rollup.payments_count + 1,
+                total = payment_hourly_rollup.total + EXCLUDED.total
+            """, nativeQuery = true)
+    void addToHourlyRollup(@Param("day") LocalDate day, @Param("hour") int hour, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO client_stats (client_key, user_id, client_phone_number, client_name, payments_count, total, last_visit)
+            VALUES (:clientKey, :userId, :phone, :name, 1, :amount, :visit)
+            ON CONFLICT (client_key) DO UPDATE
+            SET payments_count = client_stats.payments_count + 1,
+                total = client_stats.total + EXCLUDED.total,
+                last_visit = GREATEST(client_stats.last_visit, EXCLUDED.last_visit),
+                user_id = COALESCE(EXCLUDED.user_id, client_stats.user_id),
+                client_name = COALESCE(EXCLUDED.client_name, client_stats.client_name)
+            """, nativeQuery = true)
+    void addToClientStats(@Param("clientKey") String clientKey, @Param("userId") Long userId,
+                          @Param("phone") String phone, @Param("name") String name,
+                          @Param("amount") BigDecimal amount, @Param("visit") LocalDateTime visit);
+
+    // Пересчёт держит итоги заблокированными: новые платежи дождутся его коммита и лягут поверх
+    @Modifying
+    @Query(value = "LOCK TABLE payment_daily_rollup, payment_hourly_rollup, client_stats IN EXCLUSIVE MODE",
+            nativeQuery = true)
+    void lockRollups();
+
+    @Modifying
+    @Query(value = "DELETE FROM payment_daily_rollup WHERE day >= :from AND day < :to", nativeQuery = true)
+    int deleteDailyRollup(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "DELETE FROM payment_hourly_rollup WHERE day >= :from AND day < :to", nativeQuery = true)
+    int deleteHourlyRollup(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Суммы по сырым платежам за [start, end): полуоткрытый диапазон по service_date, без приведения колонки,
+    // чтобы работал покрывающий индекс idx_payments_service_date_amount
+    String DAILY_SUMS = """
+            SELECT CAST(p.service_date AS DATE), COUNT(*), SUM(p.amount)
+            FROM payments p
+            WHERE p.service_date >= :start AND p.service_date < :end
+            GROUP BY CAST(p.service_date AS DATE)
+            """;
+
+    String HOURLY_SUMS = """
+            SELECT CAST(p.service_date AS DATE), EXTRACT(HOUR FROM p.service_date), COUNT(*), SUM(p.amount)
             FROM payments p
             WHERE p.service_date >= :start AND p.service_date < :end
-            GROUP BY EXTRACT(HOUR FROM p.service_date)
-            ORDER BY hour
+            GROUP BY CAST(p.service_date AS DATE), EXTRACT(HOUR FROM p.service_date)
+            """;
+
+    @Modifying
+    @Query(value = "INSERT INTO payment_daily_rollup (day, payments_count, total) " + DAILY_SUMS, nativeQuery = true)
+    int rebuildDailyRollup(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query(value = "INSERT INTO payment_hourly_rollup (day, hour, payments_count, total) " + HOURLY_SUMS,
+            nativeQuery = true)
+    int rebuildHourlyRollup(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Телефон клиента без форматирования: 7 и последние 10 цифр, так +79991234567 и 89991234567 — один клиент.
+    // Выражение совпадает с индексом idx_payments_client_phone_normalized и с PaymentRollup.normalizePhone
+    String NORMALIZED_PHONE = "('7' || right(regexp_replace(p.client_phone_number, '\\D', '', 'g'), 10))";
+
+    // Клиент платежа: телефон, а если его нет — пользователь. Ключ client_stats, в Java — PaymentRollup.clientKey
+    String CLIENT_KEY = "COALESCE('phone:' || " + NORMALIZED_PHONE + ", 'user:' || p.user_id)";
+
+    // Клиенты с платежами за [start, end) — их итоги пересчитываются целиком
+    String RECENT_CLIENT_KEYS = "SELECT " + CLIENT_KEY + """
+             FROM payments p
+            WHERE p.service_date >= :start AND p.service_date < :end
+              AND (p.client_phone_number IS NOT NULL OR p.user_id IS NOT NULL)
+            """;
+
+    @Modifying
+    @Query(value = "DELETE FROM client_stats WHERE client_key IN (" + RECENT_CLIENT_KEYS + ")", nativeQuery = true)
+    int deleteClientStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    String CLIENT_TOTALS = """
+            (array_agg(p.user_id ORDER BY p.service_date DESC) FILTER (WHERE p.user_id IS NOT NULL))[1],
+            MAX(p.client_phone_number),
+            (array_agg(p.client_name ORDER BY p.service_date DESC) FILTER (WHERE p.client_name IS NOT NULL))[1],
+            COUNT(*), SUM(p.amount), MAX(p.service_date)
+            """;
+
+    // Все платежи этих клиентов, в каком бы виде ни ввели телефон, читаются по idx_payments_client_phone_normalized
+    // и idx_payments_user_id. Подзапросы независимые: их p — своя копия payments
+    @Modifying
+    @Query(value = "INSERT INTO client_stats (client_key, user_id, client_phone_number, client_name,"
+            + " payments_count, total, last_visit) SELECT " + CLIENT_KEY + ", " + CLIENT_TOTALS
+            + " FROM payments p WHERE " + NORMALIZED_PHONE + " IN (SELECT " + NORMALIZED_PHONE + """
+             FROM payments p
+                    WHERE p.service_date >= :start AND p.service_date < :end)
+               OR (p.client_phone_number IS NULL
+                   AND p.user_id IN (SELECT p.user_id FROM payments p
+                                     WHERE p.service_date >= :start AND p.service_date < :end
+                                       AND p.client_phone_number IS NULL))
+            """ + " GROUP BY " + CLIENT_KEY, nativeQuery = true)
+    int rebuildClientStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    interface ClientStats {
+        String getClientKey();
+
+        Long getUserId();
+
+        String getClientPhoneNumber();
+
+        String getClientName();
+
+        long getPaymentsCount();
+
+        BigDecimal getTotal();
+
+        BigDecimal getAverageTicket();
+
+        LocalDateTime getLastVisit();
+    }
+
+    String CLIENT_STATS_COLUMNS = """
+            SELECT s.client_key AS "clientKey", s.user_id AS "userId",
+                   s.client_phone_number AS "clientPhoneNumber", s.client_name AS "clientName",
+                   s.payments_count AS "paymentsCount", s.total AS "total",
+                   ROUND(s.total / s.payments_count, 2) AS "averageTicket", s.last_visit AS "lastVisit"
+            FROM client_stats s
+            """;
+
+    // Ключ — из PaymentRollup.clientKey, поиск по первичному ключу
+    @Query(value = CLIENT_STATS_COLUMNS + " WHERE s.client_key = :clientKey", nativeQuery = true)
+    Optional<ClientStats> findClientStatsByKey(@Param("clientKey") String clientKey);
+
+    // У пользователя, сменившего телефон, несколько строк — складываем их
+    @Query(value = """
+            SELECT 'user:' || :userId AS "clientKey", CAST(:userId AS BIGINT) AS "userId",
+                   (array_agg(s.client_phone_number ORDER BY s.last_visit DESC))[1] AS "clientPhoneNumber",
+                   (array_agg(s.client_name ORDER BY s.last_visit DESC))[1] AS "clientName",
+                   SUM(s.payments_count) AS "paymentsCount", SUM(s.total) AS "total",
+                   ROUND(SUM(s.total) / SUM(s.payments_count), 2) AS "averageTicket", MAX(s.last_visit) AS "lastVisit"
+            FROM client_stats s
+            WHERE s.user_id = :userId
+            HAVING COUNT(*) > 0
             """, nativeQuery = true)
-    List<Object[]> findHourlyStatsByPeriod(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    Optional<ClientStats> findClientStatsByUserId(@Param("userId") Long userId);
+
+    // Рейтинг по сумме: верх читается по idx_client_stats_total без сортировки
+    @Query(value = CLIENT_STATS_COLUMNS + " ORDER BY s.total DESC, s.client_key LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<ClientStats> findTopClients(@Param("limit") int limit, @Param("offset") int offset);
+
+    // Платежи за [start, end): Between включал бы и полночь следующего дня
+    @Query("SELECT p FROM Payment p WHERE p.serviceDate >= :start AND p.serviceDate < :end ORDER BY p.serviceDate")
+    List<Payment> findByServiceDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
+    // Для выгрузки: строки читаются из курсора порциями, вызывать внутри транзакции и закрывать поток
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.user"
+            + " WHERE p.serviceDate >= :start AND p.serviceDate < :end ORDER BY p.serviceDate")
+    Stream<Payment> streamByServiceDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
-    List<Payment> findByServiceDateBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.user ORDER BY p.serviceDate")
+    Stream<Payment> streamAll();
+}
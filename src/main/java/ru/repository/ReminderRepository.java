@@ -0,0 +1,53 @@
+package ru.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.model.Reminder;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReminderRepository extends JpaRepository<Reminder, Long> {
+
+    // Забираем пачку просроченных напоминаний; строки, которые уже обрабатывает другой инстанс, пропускаются
+    @Query(value = """
+            SELECT * FROM reminders
+            WHERE status = 'PENDING' AND due_at <= :now
+            ORDER BY due_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Reminder> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Конкретное напоминание, которое сработало в колесе таймеров; уже обработанное, занятое
+    // или отправляемое другим инстансом (срок сдвинут) — пусто
+    @Query(value = """
+            SELECT * FROM reminders
+            WHERE id = :id AND status = 'PENDING' AND due_at <= :now
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<Reminder> claimById(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Ожидающие напоминания до границы горизонта — для загрузки в колесо таймеров
+    @Query("SELECT r FROM Reminder r WHERE r.status = ru.model.enums.ReminderStatus.PENDING AND r.dueAt < :until")
+    List<Reminder> findPendingBefore(@Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE Reminder r SET r.status = ru.model.enums.ReminderStatus.CANCELED " +
+            "WHERE r.appointment.id = :appointmentId AND r.status = ru.model.enums.ReminderStatus.PENDING")
+    int cancelPending(@Param("appointmentId") Long appointmentId);
+
+    @Query("SELECT DISTINCT r.appointment.id FROM Reminder r WHERE r.appointment.id IN :appointmentIds")
+    List<Long> findAppointmentIdsWithReminders(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    @Query("SELECT COUNT(r) FROM Reminder r WHERE r.status = ru.model.enums.ReminderStatus.PENDING AND r.dueAt <= :now")
+    long countOverdue(@Param("now") LocalDateTime now);
+
+    // Восстановление после старта выполняет только один инстанс за раз
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockRecovery(@Param("key") long key);
+}
@@ -1,9 +1,12 @@
 package ru.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.model.User;
 import ru.model.enums.UserRole;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,50 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findAllByRole(UserRole role);
 
+    interface AdminStats {
+        long getTotalUsers();
+
+        long getTelegramUsers();
+
+        long getBlockedUsers();
+
+        long getActiveAppointments();
+
+        long getTotalAppointments();
+    }
+
+    // Все счётчики экрана статистики за один запрос: по одному проходу по users и appointments
+    @Query(value = """
+            SELECT u.total_users AS "totalUsers", u.telegram_users AS "telegramUsers", u.blocked_users AS "blockedUsers",
+                   a.active_appointments AS "activeAppointments", a.total_appointments AS "totalAppointments"
+            FROM (SELECT count(*) AS total_users,
+                         count(*) FILTER (WHERE telegram_id IS NOT NULL) AS telegram_users,
+                         count(*) FILTER (WHERE is_blocked) AS blocked_users
+                  FROM users) u
+            CROSS JOIN (SELECT count(*) AS total_appointments,
+                               count(*) FILTER (WHERE status = 'ACTIVE' AND date_time > :now) AS active_appointments
+                        FROM appointments) a
+            """, nativeQuery = true)
+    AdminStats getAdminStats(@Param("now") LocalDateTime now);
+
+    // Отображаемое имя для сортировки списка; выражение совпадает с индексом idx_users_display_name
+    String DISPLAY_NAME = "lower(coalesce(nullif(btrim(u.first_name), ''), u.username, ''))";
+    String CURSOR_NAME = "lower(coalesce(nullif(btrim(c.first_name), ''), c.username, ''))";
+
+    @Query(value = "SELECT u.* FROM users u WHERE u.telegram_id IS NOT NULL"
+            + " ORDER BY " + DISPLAY_NAME + ", u.id LIMIT :limit", nativeQuery = true)
+    List<User> findTelegramUsersFirstPage(@Param("limit") int limit);
+
+    // Страница после пользователя-курсора: позиция курсора берётся из его же строки
+    @Query(value = "SELECT u.* FROM users u JOIN users c ON c.id = :cursorId WHERE u.telegram_id IS NOT NULL"
+            + " AND (" + DISPLAY_NAME + ", u.id) > (" + CURSOR_NAME + ", c.id)"
+            + " ORDER BY " + DISPLAY_NAME + ", u.id LIMIT :limit", nativeQuery = true)
+    List<User> findTelegramUsersAfter(@Param("cursorId") Long cursorId, @Param("limit") int limit);
+
+    // Страница перед курсором, в обратном порядке
+    @Query(value = "SELECT u.* FROM users u JOIN users c ON c.id = :cursorId WHERE u.telegram_id IS NOT NULL"
+            + " AND (" + DISPLAY_NAME + ", u.id) < (" + CURSOR_NAME + ", c.id)"
+            + " ORDER BY " + DISPLAY_NAME + " DESC, u.id DESC LIMIT :limit", nativeQuery = true)
+    List<User> findTelegramUsersBefore(@Param("cursorId") Long cursorId, @Param("limit") int limit);
+
 }
@@ -1,76 +1,363 @@
 package ru.scheduler;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import ru.conf.OutboundProperties;
+import ru.conf.ReminderProperties;
 import ru.model.Appointment;
+import ru.model.Reminder;
+import ru.model.enums.OutboundPriority;
+import ru.model.enums.ReminderStatus;
+import ru.model.enums.ReminderType;
+import ru.model.enums.StatusAppointment;
+import ru.model.enums.UserRole;
+import ru.repository.AppointmentRepository;
+import ru.repository.ReminderRepository;
 import ru.service.NotificationService;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
-import java.util.concurrent.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Напоминания о записях хранятся в таблице reminders и переживают перезапуск.
+ * Ближайшие часы (reminders.horizon) держатся в памяти в колесе таймеров: постановка и отмена за O(1),
+ * колесо догружается из таблицы по мере движения времени. Сработавшее напоминание забирается из БД
+ * через FOR UPDATE SKIP LOCKED, срок сдвигается на время отправки и транзакция сразу фиксируется — поэтому
+ * несколько инстансов не отправят его дважды, а сама отправка не держит блокировки строк.
+ * Страховочный поллер пачками добирает просроченное, если колесо что-то пропустило.
+ */
 @Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class AppointmentNotificationScheduler {
 
+    private static final long RECOVERY_LOCK_KEY = 0x5107_0001L;
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private record ReminderKey(Long appointmentId, ReminderType type) {
+    }
+
+    // Что отправить: данные читаются в транзакции захвата, пока сущности доступны
+    private record Outgoing(Long reminderId, Long telegramId, String text, String username, LocalDateTime dateTime) {
+    }
+
+    private record ClaimedBatch(int rows, List<Outgoing> outgoing) {
+    }
+
     private final NotificationService notificationService;
-    private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final ReminderRepository reminderRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ReminderProperties properties;
+    private final OutboundProperties outboundProperties;
+    private final TransactionTemplate transactionTemplate;
 
-    public void scheduleNotifications(Appointment appointment) {
-        LocalDateTime appointmentTime = appointment.getDateTime();
+    private TimingWheel<ReminderKey, Long> wheel;
+    private ScheduledExecutorService ticker;
+    private ExecutorService dispatcher;
+    private volatile boolean stopping;
 
-        // Напоминание за день
-        scheduleTask(appointment, appointmentTime.minusDays(1),
-                "📅 Напоминаем: завтра у вас запись на %s!");
+    @PostConstruct
+    void start() {
+        // Аренда должна покрывать ожидание отправки, иначе напоминание заберёт и отправит другой инстанс
+        if (properties.getSendLease().compareTo(outboundProperties.getAwaitTimeout()) <= 0) {
+            throw new IllegalStateException("reminders.send-lease (" + properties.getSendLease()
+                    + ") должен быть больше telegram.outbound.await-timeout (" + outboundProperties.getAwaitTimeout() + ")");
+        }
+        wheel = new TimingWheel<>(properties.getTick().toMillis(), WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(daemon("reminder-wheel"));
+        dispatcher = Executors.newSingleThreadExecutor(daemon("reminder-dispatch"));
+        long tick = properties.getTick().toMillis();
+        ticker.scheduleAtFixedRate(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+    }
 
-        // Напоминание за 2 часа
-        scheduleTask(appointment, appointmentTime.minusHours(2),
-                "⏰ Напоминаем: через 2 часа у вас запись на %s!");
+    // Колесо останавливаем сразу, отправку — после того, как текущее напоминание отметится в БД.
+    // Не успевшие начаться остаются PENDING и уйдут после перезапуска
+    @PreDestroy
+    void stop() throws InterruptedException {
+        stopping = true;
+        ticker.shutdownNow();
+        dispatcher.shutdown();
+        ticker.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!dispatcher.awaitTermination(outboundProperties.getAwaitTimeout().toSeconds() + SHUTDOWN_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS)) {
+            log.warn("Отправка напоминания не завершилась до остановки");
+        }
     }
 
-    private void scheduleTask(Appointment appointment, LocalDateTime notifyTime, String template) {
+    // Вызывается в транзакции создания/переноса записи
+    public void scheduleNotifications(Appointment appointment) {
         LocalDateTime now = LocalDateTime.now();
+        List<Reminder> created = new ArrayList<>();
+        for (ReminderType type : ReminderType.values()) {
+            LocalDateTime dueAt = appointment.getDateTime().minus(type.getOffset());
+            if (dueAt.isBefore(now)) {
+                continue; // Напоминание уже прошло
+            }
+            created.add(reminderRepository.save(Reminder.builder()
+                    .appointment(appointment)
+                    .type(type)
+                    .dueAt(dueAt)
+                    .build()));
+        }
+        afterCommit(() -> created.forEach(this::enqueue));
+    }
 
-        if (notifyTime.isBefore(now)) {
-            return; // Напоминание уже прошло
+    public void cancelNotifications(Long appointmentId) {
+        int canceled = reminderRepository.cancelPending(appointmentId);
+        if (canceled > 0) {
+            log.info("Уведомления для записи {} отменены", appointmentId);
         }
+        afterCommit(() -> {
+            for (ReminderType type : ReminderType.values()) {
+                wheel.cancel(new ReminderKey(appointmentId, type));
+            }
+        });
+    }
+
+    // Догрузка колеса: всё ожидающее в пределах горизонта, включая просроченное
+    @Scheduled(fixedDelayString = "#{@reminderProperties.refillInterval.toMillis()}",
+            initialDelayString = "#{@reminderProperties.refillInterval.toMillis()}")
+    public void refill() {
+        try {
+            List<Reminder> upcoming = reminderRepository.findPendingBefore(LocalDateTime.now().plus(properties.getHorizon()));
+            upcoming.forEach(this::enqueue);
+            log.debug("В колесе напоминаний {} таймеров, догружено {}", wheel.size(), upcoming.size());
+        } catch (Exception e) {
+            log.error("Не удалось догрузить напоминания", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@reminderProperties.pollInterval.toMillis()}",
+            initialDelayString = "#{@reminderProperties.pollInterval.toMillis()}")
+    public void poll() {
+        try {
+            // Пока выборка полная — забираем следующую пачку
+            while (dispatchBatch() == properties.getBatchSize()) {
+                log.debug("Пачка напоминаний заполнена, берём следующую");
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при обработке напоминаний", e);
+        }
+    }
+
+    // Восстановление после старта: напоминания для записей, созданных до появления таблицы
+    // или потерянных при сбое, и немедленная отправка всего, что просрочено за время простоя
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        try {
+            Integer created = transactionTemplate.execute(status -> {
+                reminderRepository.lockRecovery(RECOVERY_LOCK_KEY);
+                return backfill(LocalDateTime.now());
+            });
+            long overdue = reminderRepository.countOverdue(LocalDateTime.now());
+            log.info("Восстановление напоминаний: создано {}, просрочено {}", created, overdue);
+        } catch (Exception e) {
+            log.error("Не удалось восстановить напоминания", e);
+        }
+        poll();
+        refill();
+    }
 
-        long delay = Duration.between(now, notifyTime).toMillis();
+    private int backfill(LocalDateTime now) {
+        List<Appointment> upcoming = appointmentRepository.findByDateTimeBetweenAndStatusOrderByDateTimeAsc(
+                now, now.plusYears(1), StatusAppointment.ACTIVE);
+        List<Appointment> clients = upcoming.stream()
+                .filter(appointment -> appointment.getUser().getRole() == UserRole.USER)
+                .toList();
+        if (clients.isEmpty()) {
+            return 0;
+        }
+        Set<Long> withReminders = new HashSet<>(reminderRepository.findAppointmentIdsWithReminders(
+                clients.stream().map(Appointment::getId).toList()));
+        int created = 0;
+        for (Appointment appointment : clients) {
+            if (!withReminders.contains(appointment.getId())) {
+                scheduleNotifications(appointment);
+                created++;
+            }
+        }
+        return created;
+    }
 
-        ScheduledFuture<?> future = scheduler.schedule(() -> {
-            try {
-                String message = template.formatted(
-                        appointment.getDateTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy 'в' HH:mm"))
-                );
-                if (appointment.getUser().getTelegramId() == null) {
-                    log.warn("Пользователь {} не имеет Telegram ID", appointment.getUser().getUsername());
-                    return; // Пропускаем отправку, если Telegram ID отсутствует
+    // Захват пачки — короткая транзакция; отправка идёт уже без блокировок строк
+    private int dispatchBatch() {
+        ClaimedBatch batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Reminder> due = reminderRepository.claimDue(now, properties.getBatchSize());
+            List<Outgoing> outgoing = new ArrayList<>();
+            for (Reminder reminder : due) {
+                Outgoing claimed = claim(reminder, now);
+                if (claimed != null) {
+                    outgoing.add(claimed);
                 }
-                notificationService.sendMessage(
-                        appointment.getUser().getTelegramId(),
-                        message
-                );
-                log.info("Напоминание отправлено клиенту {} о записи на {}",
-                        appointment.getUser().getUsername(), appointment.getDateTime());
-            } catch (Exception e) {
-                log.error("Ошибка при отправке напоминания", e);
             }
-        }, delay, TimeUnit.MILLISECONDS);
-        // сохраняем задачу (ключ = ID записи)
-        scheduledTasks.put(appointment.getId(), future);
+            return new ClaimedBatch(due.size(), outgoing);
+        });
+        if (batch == null) {
+            return 0;
+        }
+        // Вся пачка ставится в очередь сразу: каждое ожидание ограничено awaitTimeout от общего старта,
+        // поэтому пачка отмечается до истечения аренды и другой инстанс не отправит её повторно
+        List<CompletableFuture<Message>> sends = batch.outgoing().stream().map(this::enqueueSend).toList();
+        for (int i = 0; i < sends.size(); i++) {
+            record(batch.outgoing().get(i), sends.get(i));
+        }
+        return batch.rows();
     }
 
-    public void cancelNotifications(Long appointmentId) {
-        ScheduledFuture<?> future = scheduledTasks.remove(appointmentId);
-        if (future != null) {
-            future.cancel(true);
-            log.info("Уведомления для записи {} отменены", appointmentId);
+    private void tick() {
+        try {
+            for (Long reminderId : wheel.advance(System.currentTimeMillis())) {
+                dispatcher.execute(() -> dispatchOne(reminderId));
+            }
+        } catch (Exception e) {
+            log.error("Ошибка в колесе напоминаний", e);
         }
     }
 
+    private void dispatchOne(Long reminderId) {
+        if (stopping) {
+            return; // останавливаемся: строка остаётся PENDING
+        }
+        try {
+            // Колесо округляет срок до тика вниз, поэтому допускаем срабатывание на тик раньше due_at
+            LocalDateTime now = LocalDateTime.now();
+            Outgoing outgoing = transactionTemplate.execute(status ->
+                    reminderRepository.claimById(reminderId, now.plus(properties.getTick()))
+                            .map(claimed -> claim(claimed, now))
+                            .orElse(null));
+            if (outgoing == null) {
+                return;
+            }
+            // Неудачная попытка остаётся PENDING с новым сроком — ставим её заново
+            Reminder reminder = record(outgoing, enqueueSend(outgoing));
+            if (reminder != null && reminder.getStatus() == ReminderStatus.PENDING) {
+                enqueue(reminder);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при отправке напоминания {}", reminderId, e);
+        }
+    }
+
+    // В колесо попадают только напоминания в пределах горизонта, дальние подхватит refill
+    private void enqueue(Reminder reminder) {
+        LocalDateTime horizon = LocalDateTime.now().plus(properties.getHorizon());
+        if (reminder.getDueAt().isBefore(horizon)) {
+            wheel.schedule(new ReminderKey(reminder.getAppointment().getId(), reminder.getType()), reminder.getId(),
+                    reminder.getDueAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Вызывается в транзакции захвата, пока строка заблокирована. Напоминание, которое отправлять не нужно,
+    // закрывается сразу; остальным срок сдвигается на время отправки, чтобы их не забрал другой инстанс.
+    // Если инстанс упадёт, не отметив результат, напоминание снова станет просроченным и уйдёт повторно
+    private Outgoing claim(Reminder reminder, LocalDateTime now) {
+        Appointment appointment = reminder.getAppointment();
+        if (appointment.getStatus() == StatusAppointment.CANCELED) {
+            reminder.setStatus(ReminderStatus.CANCELED);
+            return null;
+        }
+        if (!appointment.getDateTime().isAfter(now)) {
+            reminder.setStatus(ReminderStatus.EXPIRED); // Запись уже началась, напоминать поздно
+            return null;
+        }
+        Long telegramId = appointment.getUser().getTelegramId();
+        if (telegramId == null) {
+            log.warn("Пользователь {} не имеет Telegram ID", appointment.getUser().getUsername());
+            reminder.setStatus(ReminderStatus.FAILED);
+            reminder.setLastError("Нет Telegram ID");
+            return null;
+        }
+        reminder.setDueAt(now.plus(properties.getSendLease()));
+        String text = reminder.getType().getTemplate().formatted(
+                appointment.getDateTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy 'в' HH:mm")));
+        return new Outgoing(reminder.getId(), telegramId, text, appointment.getUser().getUsername(),
+                appointment.getDateTime());
+    }
+
+    // Напоминания уступают ответам пользователям; результат ждём не дольше awaitTimeout с момента постановки
+    private CompletableFuture<Message> enqueueSend(Outgoing outgoing) {
+        return notificationService.enqueueMessage(outgoing.telegramId(), outgoing.text(), null, OutboundPriority.REMINDER)
+                .orTimeout(outboundProperties.getAwaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Результат отправки отмечается отдельной короткой транзакцией
+    private Reminder record(Outgoing outgoing, CompletableFuture<Message> send) {
+        Exception error = null;
+        try {
+            send.join();
+            log.info("Напоминание отправлено клиенту {} о записи на {}", outgoing.username(), outgoing.dateTime());
+        } catch (Exception e) {
+            error = e;
+        }
+        Exception failure = error;
+        return transactionTemplate.execute(status -> reminderRepository.findById(outgoing.reminderId())
+                .filter(reminder -> reminder.getStatus() == ReminderStatus.PENDING) // могли отменить во время отправки
+                .map(reminder -> {
+                    complete(reminder, failure);
+                    return reminder;
+                })
+                .orElse(null));
+    }
+
+    private void complete(Reminder reminder, Exception error) {
+        if (error == null) {
+            reminder.setStatus(ReminderStatus.SENT);
+            return;
+        }
+        int attempts = reminder.getAttempts() + 1;
+        reminder.setAttempts(attempts);
+        reminder.setLastError(error.getMessage());
+        if (attempts >= properties.getMaxAttempts()) {
+            reminder.setStatus(ReminderStatus.FAILED);
+            log.error("Напоминание {} не отправлено после {} попыток", reminder.getId(), attempts, error);
+        } else {
+            reminder.setDueAt(LocalDateTime.now().plus(properties.getRetryDelay().multipliedBy(attempts)));
+            log.warn("Ошибка при отправке напоминания {}, попытка {}", reminder.getId(), attempts, error);
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package ru.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Иерархическое колесо таймеров: levels уровней по wheelSize корзин, корзина уровня L покрывает wheelSize^L тиков.
+ * Постановка и отмена — O(1): узел вставляется в двусвязный список корзины и находится по ключу через HashMap.
+ * Когда время доходит до корзины верхнего уровня, её узлы опускаются на нижние уровни.
+ * Потокобезопасно за счёт одной блокировки; просроченные значения возвращаются вызывающему, а не исполняются под ней.
+ */
+public final class TimingWheel<K, V> {
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long deadlineTick;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long deadlineTick) {
+            this.key = key;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] spans;
+    // Корзины — кольцевые списки с узлом-заглушкой
+    private final Node<K, V>[][] buckets;
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.spans = new long[levels];
+        this.buckets = new Node[levels][wheelSize];
+        long span = 1;
+        for (int level = 0; level < levels; level++) {
+            spans[level] = span;
+            span *= wheelSize;
+            for (int slot = 0; slot < wheelSize; slot++) {
+                Node<K, V> head = new Node<>(null, null, 0);
+                head.prev = head;
+                head.next = head;
+                buckets[level][slot] = head;
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Поставить или перепоставить таймер; просроченный срабатывает на ближайшем тике
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        unlink(nodes.remove(key));
+        Node<K, V> node = new Node<>(key, value, Math.max(deadlineMillis / tickMillis, currentTick + 1));
+        nodes.put(key, node);
+        place(node);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Node<K, V> node = nodes.remove(key);
+        unlink(node);
+        return node != null;
+    }
+
+    public synchronized boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    // Продвинуть колесо до текущего времени и вернуть сработавшие значения
+    public synchronized List<V> advance(long nowMillis) {
+        List<V> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = spans.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    cascade(level);
+                }
+            }
+            Node<K, V> head = buckets[0][(int) (currentTick % wheelSize)];
+            for (Node<K, V> node = detach(head); node != null; ) {
+                Node<K, V> next = node.next;
+                if (node.deadlineTick <= currentTick) {
+                    nodes.remove(node.key);
+                    expired.add(node.value);
+                } else {
+                    place(node);
+                }
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    // Узлы корзины верхнего уровня раскладываются заново — они попадут ниже
+    private void cascade(int level) {
+        Node<K, V> head = buckets[level][(int) ((currentTick / spans[level]) % wheelSize)];
+        for (Node<K, V> node = detach(head); node != null; ) {
+            Node<K, V> next = node.next;
+            place(node);
+            node = next;
+        }
+    }
+
+    // Самый нижний уровень, в окне которого помещается срок; дальние сроки ждут на верхнем
+    private void place(Node<K, V> node) {
+        int level = 0;
+        while (level < spans.length - 1
+                && node.deadlineTick / spans[level] - currentTick / spans[level] >= wheelSize) {
+            level++;
+        }
+        Node<K, V> head = buckets[level][(int) ((node.deadlineTick / spans[level]) % wheelSize)];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    // Забирает все узлы корзины как односвязный список, корзина становится пустой
+    private Node<K, V> detach(Node<K, V> head) {
+        if (head.next == head) {
+            return null;
+        }
+        Node<K, V> first = head.next;
+        head.prev.next = null;
+        head.next = head;
+        head.prev = head;
+        return first;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+}
@@ -2,6 +2,7 @@ package ru.service;
 
 import ru.model.Appointment;
 import ru.model.User;
+import ru.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -27,6 +28,19 @@ public interface AdminService {
 
     List<User> getAllUsers();
 
+    /**
+     * Страница пользователей с Telegram ID по отображаемому имени.
+     * cursorId — крайний пользователь соседней страницы, forward — листаем вперёд (после него) или назад.
+     * Без курсора — первая страница.
+     */
+    UsersPage getUsersPage(Long cursorId, boolean forward, int pageSize);
+
+    // Счётчики пользователей и записей для экрана статистики, из кеша с коротким TTL
+    UserRepository.AdminStats getStats();
+
+    record UsersPage(List<User> users, boolean hasPrevious, boolean hasNext) {
+    }
+
     void sendTimeSelectionForAdmin(Long chatId, Integer messageId, LocalDate date);
 
     void assignAdmin(Long userId);
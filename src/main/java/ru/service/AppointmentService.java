@@ -7,6 +7,7 @@ import ru.model.enums.UserAppointmentState;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface AppointmentService {
@@ -29,6 +30,9 @@ public interface AppointmentService {
 
     List<LocalDateTime> getAvailableTimeSlots(LocalDateTime date);
 
+    // Дни диапазона (включительно), где есть свободные слоты, и их количество — для выбора даты
+    Map<LocalDate, Integer> getAvailableSlotCounts(LocalDate from, LocalDate to);
+
     void setPendingDate(Long chatId, LocalDateTime dateTime);
 
     LocalDateTime getPendingDate(Long chatId);
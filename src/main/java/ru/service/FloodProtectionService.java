@@ -1,11 +1,13 @@
 package ru.service;
 
+import ru.model.enums.RateLimitAction;
+
 public interface FloodProtectionService {
 
     /**
-     * Проверяет, не флудит ли пользователь
+     * Проверяет, не флудит ли пользователь (лимит зависит от класса действия)
      */
-    boolean isFloodDetected(Long userId, String textMessage);
+    boolean isFloodDetected(Long userId, String textMessage, RateLimitAction action);
 
     /**
      * Проверяет возможность создания записи
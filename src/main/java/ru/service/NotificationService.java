@@ -2,6 +2,10 @@ package ru.service;
 
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import ru.model.enums.OutboundPriority;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 public interface NotificationService {
     void sendMessage(Long chatId, String text);
@@ -21,4 +25,19 @@ public interface NotificationService {
     void getUserManagementMenu(Long chatId, String text);
 
     Message sendMessageAndReturn(Long chatId, String text, InlineKeyboardMarkup replyMarkup);
+
+    // Асинхронные варианты: результат нужен только там, где его ждут
+    CompletableFuture<Message> sendMessageAsync(Long chatId, String text, InlineKeyboardMarkup replyMarkup);
+
+    CompletableFuture<Void> sendOrEditMessageAsync(Long chatId, Integer messageId, String text,
+                                                   InlineKeyboardMarkup replyMarkup);
+
+    CompletableFuture<Boolean> deleteMessageAsync(Long chatId, Integer messageId);
+
+    // Отправка в указанной полосе исходящей очереди без ожидания ответа
+    CompletableFuture<Message> enqueueMessage(Long chatId, String text, InlineKeyboardMarkup replyMarkup,
+                                              OutboundPriority priority);
+
+    // Файл читается при отправке — удалять его можно только после завершения future
+    CompletableFuture<Message> sendDocumentAsync(Long chatId, Path file, String fileName, String caption);
 }
@@ -2,11 +2,13 @@ package ru.service;
 
 import ru.dto.PaymentRequestDto;
 import ru.model.Payment;
+import ru.repository.PaymentRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface PaymentService {
 
@@ -33,4 +35,15 @@ public interface PaymentService {
     BigDecimal getIncomeForPeriod(LocalDate startDate, LocalDate endDate);
 
     Map<LocalDate, BigDecimal> getDetailedIncomeForPeriod(LocalDate startDate, LocalDate endDate);
+
+    // Итоги клиента из client_stats: по номеру (+7... или 8...) или по id пользователя
+    Optional<PaymentRepository.ClientStats> getClientStatsByPhone(String phone);
+
+    Optional<PaymentRepository.ClientStats> getClientStatsByUser(Long userId);
+
+    // Рейтинг клиентов по сумме платежей, страницы с нуля
+    TopClientsPage getTopClients(int page, int pageSize);
+
+    record TopClientsPage(List<PaymentRepository.ClientStats> clients, int page, boolean hasNext) {
+    }
 }
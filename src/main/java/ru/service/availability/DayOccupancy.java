@@ -0,0 +1,53 @@
+package ru.service.availability;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * Занятость одного дня: по биту на каждую минуту суток (23 long).
+ * Неизменяемый — изменения создают копию, поэтому читать можно без блокировок.
+ */
+public final class DayOccupancy {
+    private static final int WORDS = (24 * 60 + 63) / 64;
+
+    static final DayOccupancy EMPTY = new DayOccupancy(new long[WORDS]);
+
+    private final long[] bits;
+
+    private DayOccupancy(long[] bits) {
+        this.bits = bits;
+    }
+
+    static DayOccupancy of(Collection<LocalDateTime> booked) {
+        long[] bits = new long[WORDS];
+        for (LocalDateTime time : booked) {
+            int minute = minuteOf(time.toLocalTime());
+            bits[minute >>> 6] |= 1L << minute;
+        }
+        return new DayOccupancy(bits);
+    }
+
+    public boolean isBusy(LocalTime time) {
+        return isBusy(minuteOf(time));
+    }
+
+    // Минута от начала суток
+    public boolean isBusy(int minute) {
+        return (bits[minute >>> 6] & (1L << minute)) != 0;
+    }
+
+    DayOccupancy with(LocalTime time, boolean busy) {
+        if (isBusy(time) == busy) {
+            return this;
+        }
+        long[] copy = bits.clone();
+        int minute = minuteOf(time);
+        copy[minute >>> 6] ^= 1L << minute;
+        return new DayOccupancy(copy);
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
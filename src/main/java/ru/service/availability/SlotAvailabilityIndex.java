@@ -0,0 +1,147 @@
+package ru.service.availability;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.conf.AvailabilityIndexProperties;
+import ru.model.enums.StatusAppointment;
+import ru.repository.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Индекс занятости слотов по дням. Дни загружаются одним запросом на диапазон
+ * и дальше обновляются точечно при создании, отмене и переносе записи.
+ * Индекс нужен для показа свободного времени; при бронировании занятость всё равно проверяется в БД.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlotAvailabilityIndex {
+
+    private static final String CHANNEL = "availability:changed";
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AppointmentRepository appointmentRepository;
+    private final AvailabilityIndexProperties properties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private Cache<LocalDate, DayOccupancy> days;
+
+    @PostConstruct
+    void init() {
+        days = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtl())
+                .maximumSize(properties.getHorizonDays() * 2L)
+                .build();
+
+        // Другой инстанс изменил записи на дату — перечитаем её при следующем обращении
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                String[] parts = new String(message.getBody(), UTF_8).split("\\|", 2);
+                if (!instanceId.equals(parts[0])) {
+                    days.invalidate(LocalDate.parse(parts[1]));
+                }
+            } catch (Exception e) {
+                log.warn("Некорректное сообщение об изменении занятости: {}", message);
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDate today = LocalDate.now();
+        days(today, today.plusDays(properties.getHorizonDays() - 1L));
+        log.info("Индекс занятости загружен на {} дней", properties.getHorizonDays());
+    }
+
+    public DayOccupancy day(LocalDate date) {
+        return days(date, date).get(date);
+    }
+
+    // Занятость по всем дням диапазона (включительно); недостающие дни — одним запросом
+    public Map<LocalDate, DayOccupancy> days(LocalDate from, LocalDate to) {
+        Map<LocalDate, DayOccupancy> result = new LinkedHashMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DayOccupancy day = days.getIfPresent(date);
+            result.put(date, day);
+            if (day == null) {
+                missing.add(date);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<LocalDate, DayOccupancy> loaded = load(missing.getFirst(), missing.getLast());
+            for (LocalDate date : missing) {
+                result.put(date, days.asMap().merge(date, loaded.get(date), (current, fresh) -> current));
+            }
+        }
+        return result;
+    }
+
+    public void occupy(LocalDateTime slot) {
+        changeAfterCommit(slot, true);
+    }
+
+    public void release(LocalDateTime slot) {
+        changeAfterCommit(slot, false);
+    }
+
+    private Map<LocalDate, DayOccupancy> load(LocalDate from, LocalDate to) {
+        Map<LocalDate, List<LocalDateTime>> booked = new HashMap<>();
+        appointmentRepository.findBookedTimes(from.atStartOfDay(), to.plusDays(1).atStartOfDay(),
+                        StatusAppointment.CANCELED)
+                .forEach(time -> booked.computeIfAbsent(time.toLocalDate(), d -> new ArrayList<>()).add(time));
+
+        Map<LocalDate, DayOccupancy> loaded = new HashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<LocalDateTime> times = booked.get(date);
+            loaded.put(date, times == null ? DayOccupancy.EMPTY : DayOccupancy.of(times));
+        }
+        return loaded;
+    }
+
+    // Индекс меняем только после коммита, иначе откат транзакции оставит в нём ложную занятость
+    private void changeAfterCommit(LocalDateTime slot, boolean busy) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change(slot, busy);
+                }
+            });
+        } else {
+            change(slot, busy);
+        }
+    }
+
+    private void change(LocalDateTime slot, boolean busy) {
+        days.asMap().computeIfPresent(slot.toLocalDate(), (date, day) -> day.with(slot.toLocalTime(), busy));
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, instanceId + "|" + slot.toLocalDate());
+        } catch (Exception e) {
+            log.error("Не удалось разослать изменение занятости на {}", slot.toLocalDate(), e);
+        }
+    }
+}
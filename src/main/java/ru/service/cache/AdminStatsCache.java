@@ -0,0 +1,54 @@
+package ru.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.conf.AdminStatsCacheProperties;
+import ru.repository.UserRepository.AdminStats;
+
+import java.util.function.Supplier;
+
+/**
+ * Счётчики экрана статистики админки. Одно значение с коротким TTL; записи этого инстанса сбрасывают его
+ * после коммита, изменения с других инстансов подтянутся по истечении TTL.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdminStatsCache {
+
+    private static final String KEY = "stats";
+
+    private final AdminStatsCacheProperties properties;
+
+    private Cache<String, AdminStats> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    public AdminStats get(Supplier<AdminStats> loader) {
+        return cache.get(KEY, key -> loader.get());
+    }
+
+    // Внутри транзакции — только после коммита, иначе следующий запрос закеширует старые числа
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll();
+                }
+            });
+        } else {
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.service.cache;
+
+import ru.model.User;
+import ru.model.enums.UserRole;
+
+// Всё, что нужно для проверки доступа на каждом апдейте
+public record UserAccess(boolean admin, boolean blocked) {
+
+    public static final UserAccess UNKNOWN = new UserAccess(false, false);
+
+    public static UserAccess of(User user) {
+        return new UserAccess(UserRole.ADMIN.equals(user.getRole()), Boolean.TRUE.equals(user.getIsBlocked()));
+    }
+}
@@ -0,0 +1,91 @@
+package ru.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.conf.UserAccessCacheProperties;
+
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Локальный кеш роли и блокировки пользователя. Изменения из админки рассылаются
+ * остальным инстансам через Redis pub/sub, TTL подстраховывает правки мимо бота.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserAccessCache {
+
+    private static final String CHANNEL = "user-access:invalidate";
+    private static final String CACHE_NAME = "userAccess";
+
+    private final UserAccessCacheProperties properties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<Long, UserAccess> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME); // cache.gets{result=hit|miss}, cache.evictions
+
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                cache.invalidate(Long.parseLong(new String(message.getBody(), UTF_8)));
+            } catch (NumberFormatException e) {
+                log.warn("Некорректное сообщение инвалидации кеша доступа: {}", message);
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    public UserAccess get(Long telegramId, Function<Long, UserAccess> loader) {
+        if (telegramId == null) {
+            return UserAccess.UNKNOWN;
+        }
+        return cache.get(telegramId, loader);
+    }
+
+    // Сбрасывает запись на всех инстансах; внутри транзакции — только после коммита
+    public void invalidate(Long telegramId) {
+        if (telegramId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(telegramId);
+                }
+            });
+        } else {
+            publish(telegramId);
+        }
+    }
+
+    private void publish(Long telegramId) {
+        cache.invalidate(telegramId);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, telegramId.toString());
+        } catch (Exception e) {
+            log.error("Не удалось разослать инвалидацию кеша доступа для {}", telegramId, e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.service.calendar;
+
+import ru.model.LunchBreak;
+import ru.model.WorkDaysOverride;
+import ru.model.WorkSchedule;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок рабочего календаря: недельный график, исключения по датам и обеды.
+ * Время хранится в минутах от полуночи, все проверки — без обращений к БД и без аллокаций.
+ */
+public final class WorkingCalendar {
+    public static final int NONE = -1;
+
+    private record DayHours(boolean working, int start, int end) {
+    }
+
+    // Индекс — день недели 1..7
+    private final int[] weeklyStart = new int[8];
+    private final int[] weeklyEnd = new int[8];
+    private final int[] lunchStart = new int[8];
+    private final int[] lunchEnd = new int[8];
+    private final Map<LocalDate, DayHours> overrides = new HashMap<>();
+
+    private WorkingCalendar() {
+        for (int day = 0; day < 8; day++) {
+            weeklyStart[day] = weeklyEnd[day] = lunchStart[day] = lunchEnd[day] = NONE;
+        }
+    }
+
+    static WorkingCalendar of(List<WorkSchedule> schedules,
+                              List<WorkDaysOverride> overrides, List<LunchBreak> lunchBreaks) {
+        WorkingCalendar calendar = new WorkingCalendar();
+        for (WorkSchedule schedule : schedules) {
+            if (Boolean.TRUE.equals(schedule.getIsWorkingDay())) {
+                calendar.weeklyStart[schedule.getDayOfWeek()] = minuteOf(schedule.getStartTime());
+                calendar.weeklyEnd[schedule.getDayOfWeek()] = minuteOf(schedule.getEndTime());
+            }
+        }
+        for (WorkDaysOverride override : overrides) {
+            calendar.overrides.put(override.getDate(), new DayHours(Boolean.TRUE.equals(override.getIsWorkingDay()),
+                    minuteOf(override.getStartTime()), minuteOf(override.getEndTime())));
+        }
+        for (LunchBreak lunchBreak : lunchBreaks) {
+            if (Boolean.TRUE.equals(lunchBreak.getIsActive())) {
+                calendar.lunchStart[lunchBreak.getDayOfWeek()] = minuteOf(lunchBreak.getStartTime());
+                calendar.lunchEnd[lunchBreak.getDayOfWeek()] = minuteOf(lunchBreak.getEndTime());
+            }
+        }
+        return calendar;
+    }
+
+    // Исключение на дату важнее недельного графика
+    public boolean isWorkingDay(LocalDate date) {
+        DayHours override = overrides.get(date);
+        if (override != null) {
+            return override.working();
+        }
+        return weeklyStart[date.getDayOfWeek().getValue()] != NONE;
+    }
+
+    // Начало рабочего дня в минутах или NONE
+    public int startMinute(LocalDate date) {
+        DayHours override = overrides.get(date);
+        if (override != null) {
+            return override.working() ? override.start() : NONE;
+        }
+        return weeklyStart[date.getDayOfWeek().getValue()];
+    }
+
+    public int endMinute(LocalDate date) {
+        DayHours override = overrides.get(date);
+        if (override != null) {
+            return override.working() ? override.end() : NONE;
+        }
+        return weeklyEnd[date.getDayOfWeek().getValue()];
+    }
+
+    // Слот попадает на обед, если начинается внутри перерыва [начало, конец)
+    public boolean isLunch(LocalDate date, int minute) {
+        int day = date.getDayOfWeek().getValue();
+        return lunchStart[day] != NONE && lunchEnd[day] != NONE
+                && minute >= lunchStart[day] && minute < lunchEnd[day];
+    }
+
+    // Слот по часовой сетке от начала рабочего дня, включая час окончания, и не на обеде
+    public boolean isBookable(LocalDate date, int minute) {
+        int start = startMinute(date);
+        int end = endMinute(date);
+        return start != NONE && end != NONE
+                && minute >= start && minute <= end
+                && (minute - start) % 60 == 0
+                && !isLunch(date, minute);
+    }
+
+    public static int minuteOf(LocalTime time) {
+        return time == null ? NONE : time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.service.calendar;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.repository.LunchBreakRepository;
+import ru.repository.WorkDaysOverrideRepository;
+import ru.repository.WorkScheduleRepository;
+
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Держит текущий снимок рабочего календаря. После изменения графика, исключений или обеда
+ * снимок пересобирается целиком и подменяется атомарно, остальные инстансы узнают об этом через Redis pub/sub.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WorkingCalendarHolder {
+
+    private static final String CHANNEL = "calendar:changed";
+
+    private final WorkScheduleRepository workScheduleRepository;
+    private final WorkDaysOverrideRepository workDaysOverrideRepository;
+    private final LunchBreakRepository lunchBreakRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile WorkingCalendar current;
+
+    @PostConstruct
+    void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            if (!instanceId.equals(new String(message.getBody(), UTF_8))) {
+                rebuild();
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    public WorkingCalendar get() {
+        WorkingCalendar calendar = current;
+        return calendar != null ? calendar : rebuild();
+    }
+
+    // Вызывается из транзакции, которая меняет календарь: пересборка после коммита
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        rebuild();
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, instanceId);
+        } catch (Exception e) {
+            log.error("Не удалось разослать изменение рабочего календаря", e);
+        }
+    }
+
+    private synchronized WorkingCalendar rebuild() {
+        WorkingCalendar calendar = WorkingCalendar.of(workScheduleRepository.findAll(),
+                workDaysOverrideRepository.findAll(),
+                lunchBreakRepository.findAll());
+        current = calendar;
+        log.info("Рабочий календарь обновлён");
+        return calendar;
+    }
+}
@@ -0,0 +1,167 @@
+package ru.service.export;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.model.Appointment;
+import ru.model.Payment;
+import ru.model.User;
+import ru.repository.AppointmentRepository;
+import ru.repository.PaymentRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Выгрузка платежей и записей в CSV (разделитель «;», UTF-8 с BOM — так файл открывается в Excel).
+ * Строки читаются из БД потоком и сразу пишутся во временный файл; контекст JPA периодически очищается,
+ * поэтому память не растёт с размером выгрузки. Временный файл удаляет вызывающий.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CsvExporter {
+
+    private static final int CLEAR_EVERY = 500;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private final PaymentRepository paymentRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final EntityManager entityManager;
+
+    // Платежи за дни [from, to)
+    @Transactional(readOnly = true)
+    public Path exportPayments(LocalDate from, LocalDate to) throws IOException {
+        return payments(() -> paymentRepository.streamByServiceDateRange(from.atStartOfDay(), to.atStartOfDay()),
+                from + " — " + to.minusDays(1));
+    }
+
+    @Transactional(readOnly = true)
+    public Path exportAllPayments() throws IOException {
+        return payments(paymentRepository::streamAll, "всё время");
+    }
+
+    // Записи за дни [from, to)
+    @Transactional(readOnly = true)
+    public Path exportAppointments(LocalDate from, LocalDate to) throws IOException {
+        return appointments(() -> appointmentRepository.streamByDateTimeRange(from.atStartOfDay(), to.atStartOfDay()),
+                from + " — " + to.minusDays(1));
+    }
+
+    // Все записи, включая будущие
+    @Transactional(readOnly = true)
+    public Path exportAllAppointments() throws IOException {
+        return appointments(appointmentRepository::streamAll, "всё время");
+    }
+
+    private Path payments(Supplier<Stream<Payment>> query, String period) throws IOException {
+        Path file = Files.createTempFile("payments-", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, UTF_8);
+             Stream<Payment> rows = query.get()) {
+            out.write('\uFEFF');
+            line(out, "Дата услуги", "Сумма", "Услуга", "Клиент", "Телефон", "Telegram", "Комментарий");
+            int count = write(rows, payment -> line(out,
+                    payment.getServiceDate().format(DATE_TIME),
+                    payment.getAmount().toPlainString(),
+                    payment.getServiceType() != null ? payment.getServiceType().getDescription() : "",
+                    payment.getClientName(),
+                    payment.getClientPhoneNumber(),
+                    username(payment.getUser()),
+                    payment.getComment()));
+            log.info("Выгружено платежей: {} за период {}", count, period);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private Path appointments(Supplier<Stream<Appointment>> query, String period) throws IOException {
+        Path file = Files.createTempFile("appointments-", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, UTF_8);
+             Stream<Appointment> rows = query.get()) {
+            out.write('\uFEFF');
+            line(out, "Дата и время", "Статус", "Клиент", "Телефон", "Telegram", "Создана");
+            int count = write(rows, appointment -> {
+                User user = appointment.getUser();
+                line(out,
+                        appointment.getDateTime().format(DATE_TIME),
+                        appointment.getStatus().name(),
+                        user != null ? user.getFirstName() : "",
+                        user != null ? user.getClientPhoneNumber() : "",
+                        username(user),
+                        appointment.getCreatedAt() != null ? appointment.getCreatedAt().format(DATE_TIME) : "");
+            });
+            log.info("Выгружено записей: {} за период {}", count, period);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+    }
+
+    private <T> int write(Stream<T> rows, RowWriter<T> writer) {
+        int[] count = {0};
+        rows.forEach(row -> {
+            try {
+                writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Прочитанные сущности больше не нужны — не копим их в контексте
+            if (++count[0] % CLEAR_EVERY == 0) {
+                entityManager.clear();
+            }
+        });
+        return count[0];
+    }
+
+    private static String username(User user) {
+        return user != null && user.getUsername() != null ? "@" + user.getUsername() : "";
+    }
+
+    private static void line(BufferedWriter out, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(';');
+            }
+            out.write(escape(values[i]));
+        }
+        out.write("\r\n");
+    }
+
+    // Кавычки только там, где без них значение сломает строку. Значение, которое Excel принял бы
+    // за формулу (начинается с =, +, -, @), экранируем апострофом — комментарий или имя клиента не выполнятся
+    private static String escape(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if (isFormula(value.charAt(0))) {
+            return "\"'" + value.replace("\"", "\"\"") + '"';
+        }
+        if (value.indexOf(';') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean isFormula(char first) {
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
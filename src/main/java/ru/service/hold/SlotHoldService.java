@@ -0,0 +1,108 @@
+package ru.service.hold;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import ru.conf.SlotHoldProperties;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Временная бронь слота на время ввода имени и телефона: ключ slot-hold:{время} со значением chatId.
+ * Бронь снимается явно или истекает сама по TTL. При недоступности Redis бронирование не блокируется —
+ * окончательную проверку всё равно делает createAppointment.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlotHoldService {
+
+    private static final String PREFIX = "slot-hold:";
+
+    // Занять свободный слот или продлить свою бронь. 1 — слот наш, 0 — держит другой клиент.
+    private static final DefaultRedisScript<Long> HOLD = new DefaultRedisScript<>("""
+            if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                return 1
+            end
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                redis.call('pexpire', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0""", Long.class);
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0""", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SlotHoldProperties properties;
+
+    public boolean hold(Long chatId, LocalDateTime slot) {
+        try {
+            Long result = stringRedisTemplate.execute(HOLD, List.of(key(slot)),
+                    chatId.toString(), Long.toString(properties.getTtl().toMillis()));
+            return result == null || result == 1L;
+        } catch (DataAccessException e) {
+            log.warn("Не удалось поставить бронь слота {} для {}", slot, chatId, e);
+            return true;
+        }
+    }
+
+    // Снимает бронь, только если её держит этот же чат
+    public void release(Long chatId, LocalDateTime slot) {
+        if (chatId == null || slot == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE, List.of(key(slot)), chatId.toString());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось снять бронь слота {} для {}", slot, chatId, e);
+        }
+    }
+
+    // Слоты без чужих броней, одним MGET
+    public List<LocalDateTime> withoutHeldByOthers(Long chatId, List<LocalDateTime> slots) {
+        if (slots.isEmpty()) {
+            return slots;
+        }
+        List<String> holders;
+        try {
+            holders = stringRedisTemplate.opsForValue().multiGet(keys(slots));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось прочитать брони слотов", e);
+            return slots;
+        }
+        if (holders == null) {
+            return slots;
+        }
+        String self = chatId.toString();
+        List<LocalDateTime> free = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            String holder = holders.get(i);
+            if (holder == null || Objects.equals(holder, self)) {
+                free.add(slots.get(i));
+            }
+        }
+        return free;
+    }
+
+    private static List<String> keys(Collection<LocalDateTime> slots) {
+        List<String> keys = new ArrayList<>(slots.size());
+        for (LocalDateTime slot : slots) {
+            keys.add(key(slot));
+        }
+        return keys;
+    }
+
+    private static String key(LocalDateTime slot) {
+        return PREFIX + slot;
+    }
+}
@@ -14,11 +14,16 @@ import ru.repository.AppointmentRepository;
 import ru.repository.UserRepository;
 import ru.service.AdminService;
 import ru.service.AppointmentService;
+import ru.service.cache.AdminStatsCache;
+import ru.service.cache.UserAccessCache;
+import ru.service.hold.SlotHoldService;
 import ru.util.KeyboardFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -32,6 +37,9 @@ public class AdminServiceImpl implements AdminService {
     private final AppointmentService appointmentService;
     private final KeyboardFactory keyboardFactory;
     private final NotificationServiceImpl notificationService;
+    private final UserAccessCache userAccessCache;
+    private final AdminStatsCache adminStatsCache;
+    private final SlotHoldService slotHoldService;
 
     @Transactional(readOnly = true)
     @Override
@@ -90,6 +98,8 @@ public class AdminServiceImpl implements AdminService {
         User user = userRepository.findByTelegramId(userId).orElseThrow();
         user.setIsBlocked(true);
         userRepository.save(user);
+        userAccessCache.invalidate(userId);
+        adminStatsCache.invalidate();
         log.info("Пользователь {} заблокирован, isBlocked={}", user, user.getIsBlocked());
     }
 
@@ -100,6 +110,8 @@ public class AdminServiceImpl implements AdminService {
         userRepository.findByTelegramId(userId).ifPresent(user -> {
             user.setIsBlocked(false);
             userRepository.save(user);
+            userAccessCache.invalidate(userId);
+            adminStatsCache.invalidate();
         });
     }
 
@@ -116,11 +128,40 @@ public class AdminServiceImpl implements AdminService {
     @Override
     @Transactional(readOnly = true)
     public List<User> getAllUsers() {
-        if (userRepository.findAll().isEmpty()) {
-            return List.of();
-        } else {
-            return userRepository.findAll();
+        return userRepository.findAll();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserRepository.AdminStats getStats() {
+        return adminStatsCache.get(() -> userRepository.getAdminStats(LocalDateTime.now()));
+    }
+
+    // Берём на одну строку больше страницы — так узнаём, есть ли следующая, без подсчёта всей таблицы
+    @Override
+    public UsersPage getUsersPage(Long cursorId, boolean forward, int pageSize) {
+        if (cursorId == null) {
+            List<User> rows = userRepository.findTelegramUsersFirstPage(pageSize + 1);
+            return new UsersPage(head(rows, pageSize), false, rows.size() > pageSize);
+        }
+        if (forward) {
+            List<User> rows = userRepository.findTelegramUsersAfter(cursorId, pageSize + 1);
+            if (rows.isEmpty()) {
+                return getUsersPage(null, true, pageSize); // курсор удалён или страница опустела
+            }
+            return new UsersPage(head(rows, pageSize), true, rows.size() > pageSize);
         }
+        List<User> rows = userRepository.findTelegramUsersBefore(cursorId, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return getUsersPage(null, true, pageSize); // дошли до начала списка
+        }
+        List<User> page = new ArrayList<>(head(rows, pageSize));
+        Collections.reverse(page);
+        return new UsersPage(page, true, true);
+    }
+
+    private static List<User> head(List<User> rows, int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
     }
 
     @Override
@@ -129,6 +170,7 @@ public class AdminServiceImpl implements AdminService {
                 .stream()
                 .filter(slot -> slot.isAfter(LocalDateTime.now()))
                 .toList();
+        availableSlots = slotHoldService.withoutHeldByOthers(chatId, availableSlots);
 
         InlineKeyboardMarkup markup = keyboardFactory.timeSelectionKeyboard(date, availableSlots, UserRole.ADMIN);
         String text = "Доступное время на " + date.format(DateTimeFormatter.ofPattern("dd.MM (E)")) + ":\n🟢 - свободно";
@@ -143,6 +185,7 @@ public class AdminServiceImpl implements AdminService {
             log.info("🔄 Изменение роли с {}, на ADMIN для пользователя {}", user.getRole(), userId);
             user.setRole(UserRole.ADMIN);
             userRepository.save(user);
+            userAccessCache.invalidate(userId);
             log.info("🔄 Роль пользователя {} успешно изменена", userId);
         });
     }
@@ -154,6 +197,7 @@ public class AdminServiceImpl implements AdminService {
             log.info("🔄 Изменение роли с {}, на USER для пользователя {}", user.getRole(), userId);
             user.setRole(UserRole.USER);
             userRepository.save(user);
+            userAccessCache.invalidate(userId);
             log.info("🔄 Роль пользователя {} успешно изменена", userId);
         });
     }
@@ -9,6 +9,7 @@ import ru.error.exception.AppointmentNotFoundException;
 import ru.model.Appointment;
 import ru.model.User;
 import ru.model.enums.AdminAppointmentState;
+import ru.model.enums.OutboundPriority;
 import ru.model.enums.StatusAppointment;
 import ru.model.enums.UserAppointmentState;
 import ru.model.enums.UserRole;
@@ -16,14 +17,21 @@ import ru.repository.AppointmentRepository;
 import ru.repository.UserRepository;
 import ru.scheduler.AppointmentNotificationScheduler;
 import ru.service.*;
+import ru.service.availability.DayOccupancy;
+import ru.service.availability.SlotAvailabilityIndex;
+import ru.service.cache.AdminStatsCache;
+import ru.service.calendar.WorkingCalendar;
+import ru.service.calendar.WorkingCalendarHolder;
 import ru.util.KeyboardFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static ru.util.BotConstants.DATE_FORMAT;
@@ -33,6 +41,9 @@ import static ru.util.BotConstants.TIME_FORMAT;
 @Service
 @RequiredArgsConstructor
 public class AppointmentServiceImpl implements AppointmentService {
+    // Пространство ключей advisory-блокировок для слотов записи
+    static final int SLOT_LOCK_NAMESPACE = 0x5107;
+
     private final AppointmentRepository appointmentRepository;
     private final AppointmentNotificationScheduler notificationScheduler;
     private final WorkScheduleService workScheduleService;
@@ -40,7 +51,9 @@ public class AppointmentServiceImpl implements AppointmentService {
     private final NotificationService notificationService;
     private final UserRepository userRepository;
     private final KeyboardFactory keyboardFactory;
-    private final LunchBreakService lunchBreakService;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final WorkingCalendarHolder workingCalendarHolder;
+    private final AdminStatsCache adminStatsCache;
 
     @Override
     public void setUserState(Long chatId, UserAppointmentState state) {
@@ -72,11 +85,16 @@ public class AppointmentServiceImpl implements AppointmentService {
         log.info("Создание записи: user.id={}, username={}",
                 appointment.getUser().getId(),
                 appointment.getUser().getUsername());
+        requireBookable(appointment.getDateTime());
+        // Проверка и вставка под блокировкой слота — параллельная запись на тот же час ждёт коммита
+        lockSlot(appointment.getDateTime());
         if (!isTimeSlotAvailable(appointment.getDateTime())) {
             throw new IllegalStateException("Слот уже занят");
         }
         appointment.setStatus(StatusAppointment.ACTIVE);
         Appointment saved = appointmentRepository.save(appointment);
+        slotAvailabilityIndex.occupy(saved.getDateTime());
+        adminStatsCache.invalidate();
         if (saved.getUser().getRole() == UserRole.USER) {
             notificationScheduler.scheduleNotifications(saved);
             notifyAdminsNewAppointment(saved);
@@ -99,7 +117,9 @@ public class AppointmentServiceImpl implements AppointmentService {
         // Меняем статус записи
         appointment.setStatus(StatusAppointment.CANCELED);
         appointmentRepository.save(appointment);
+        slotAvailabilityIndex.release(appointment.getDateTime());
         notificationScheduler.cancelNotifications(appointmentId);
+        adminStatsCache.invalidate();
         log.info("Запись отменена: {}", appointmentId);
     }
 
@@ -116,18 +136,43 @@ public class AppointmentServiceImpl implements AppointmentService {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new AppointmentNotFoundException("Запись c id " + appointmentId + " не найдена"));
 
+        LocalDateTime oldDateTime = appointment.getDateTime();
+        if (!newDateTime.equals(oldDateTime)) {
+            requireBookable(newDateTime);
+            lockSlot(newDateTime);
+            if (!isTimeSlotAvailable(newDateTime)) {
+                throw new IllegalStateException("Слот уже занят");
+            }
+        }
+
         // Отменить старую запись
         notificationScheduler.cancelNotifications(appointmentId);
 
         // Обновить время
         appointment.setDateTime(newDateTime);
         Appointment saved = appointmentRepository.save(appointment);
+        if (saved.getStatus() != StatusAppointment.CANCELED) {
+            slotAvailabilityIndex.release(oldDateTime);
+            slotAvailabilityIndex.occupy(newDateTime);
+        }
 
         // создаём новые уведомления
         notificationScheduler.scheduleNotifications(saved);
         return saved;
     }
 
+    // Время должно попадать в сетку рабочего дня и не на обед — проверка по снимку календаря, без БД
+    private void requireBookable(LocalDateTime dateTime) {
+        if (!workingCalendarHolder.get().isBookable(dateTime.toLocalDate(), WorkingCalendar.minuteOf(dateTime.toLocalTime()))) {
+            throw new IllegalStateException("Время " + dateTime + " недоступно для записи");
+        }
+    }
+
+    private void lockSlot(LocalDateTime dateTime) {
+        int slot = (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+        appointmentRepository.lockSlot(SLOT_LOCK_NAMESPACE, slot);
+    }
+
     // Проверить доступность времени
     @Override
     public boolean isTimeSlotAvailable(LocalDateTime dateTime) {
@@ -141,32 +186,52 @@ public class AppointmentServiceImpl implements AppointmentService {
     @Transactional(readOnly = true)
     public List<LocalDateTime> getAvailableTimeSlots(LocalDateTime date) {
         LocalDate localDate = date.toLocalDate();
-        // 1. Проверяем, рабочий ли день
-        if (!workScheduleService.isWorkingDay(localDate)) {
+        // График и обед берутся из снимка календаря, занятость — из индекса, без запросов к БД
+        WorkingCalendar calendar = workingCalendarHolder.get();
+        if (!calendar.isWorkingDay(localDate)) {
             return List.of();
         }
-        // 2. Получаем рабочее время
-        LocalTime[] workTime = workScheduleService.getWorkTimeForDate(localDate);
+        return freeSlots(calendar, localDate, slotAvailabilityIndex.day(localDate), LocalDateTime.now());
+    }
 
-        LocalTime startTime = workTime[0];
-        LocalTime endTime = workTime[1];
+    @Override
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Integer> getAvailableSlotCounts(LocalDate from, LocalDate to) {
+        WorkingCalendar calendar = workingCalendarHolder.get();
+        Map<LocalDate, DayOccupancy> occupancy = slotAvailabilityIndex.days(from, to);
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (!calendar.isWorkingDay(date)) {
+                continue;
+            }
+            int free = freeSlots(calendar, date, occupancy.get(date), now).size();
+            if (free > 0) {
+                counts.put(date, free);
+            }
+        }
+        return counts;
+    }
 
-        // 3. Генерируем слоты (по 1 часу)
-        LocalDateTime current = localDate.atTime(startTime);
-        LocalDateTime end = localDate.atTime(endTime);
+    // Генерируем слоты по 1 часу, пропуская обед, прошедшее и занятое время
+    private List<LocalDateTime> freeSlots(WorkingCalendar calendar, LocalDate date,
+                                          DayOccupancy occupancy, LocalDateTime now) {
+        int start = calendar.startMinute(date);
+        int end = calendar.endMinute(date);
         List<LocalDateTime> availableSlots = new ArrayList<>();
+        if (start == WorkingCalendar.NONE || end == WorkingCalendar.NONE) {
+            return availableSlots;
+        }
 
-        while (!current.isAfter(end)) {
-            // Пропускаем слоты, которые попадают на обеденное время
-            if (lunchBreakService.isLunchTime(current)){
-                current = current.plusHours(1);
+        for (int minute = start; minute <= end; minute += 60) {
+            if (!calendar.isBookable(date, minute) || occupancy.isBusy(minute)) {
                 continue;
             }
-
-            if (current.isAfter(LocalDateTime.now()) && isTimeSlotAvailable(current)) {
-                availableSlots.add(current);
+            LocalDateTime slot = date.atTime(minute / 60, minute % 60);
+            if (slot.isAfter(now)) {
+                availableSlots.add(slot);
             }
-            current = current.plusHours(1);
         }
         return availableSlots;
     }
@@ -303,7 +368,7 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         for (User admin : admins) {
             if (admin.getTelegramId() != null && !admin.getIsBlocked()) {
-                notificationService.sendMessage(admin.getTelegramId(), msg);
+                notifyAdmin(admin.getTelegramId(), msg, null);
             }
         }
     }
@@ -328,11 +393,20 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         for (User admin : admins) {
             if (admin.getTelegramId() != null && !admin.getIsBlocked()) {
-                notificationService.sendOrEditMessage(admin.getTelegramId(), null, msg, backButton);
+                notifyAdmin(admin.getTelegramId(), msg, backButton);
             }
         }
     }
 
+    // Рассылка админам идёт в низкоприоритетной полосе и не задерживает ответ клиенту
+    private void notifyAdmin(Long adminChatId, String msg, InlineKeyboardMarkup markup) {
+        notificationService.enqueueMessage(adminChatId, msg, markup, OutboundPriority.BROADCAST)
+                .exceptionally(e -> {
+                    log.warn("Не удалось уведомить администратора {}", adminChatId, e);
+                    return null;
+                });
+    }
+
     @Override
     @Transactional(readOnly = true)
     public boolean hasAppointmentInLast6Days(Long chatId, LocalDateTime newDateTime) {
@@ -1,42 +1,69 @@
 package ru.service.impl;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import ru.conf.RateLimitProperties;
+import ru.model.enums.RateLimitAction;
 import ru.service.FloodProtectionService;
 import ru.service.UserService;
+import ru.service.ratelimit.LocalRateLimiter;
 
-import java.time.Duration;
+import java.util.List;
 
 @Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class FloodProtectionServiceImpl implements FloodProtectionService {
     private final UserService userService;
-    private final RedisTemplate<String, Object> redisTemplate;
-
-    private static final int MAX_REQUESTS_PER_MINUTE = 25;
-    private static final int MAX_APPOINTMENT_STARTS = 5; // Лимит начала процесса записи
-    public static final int APPOINTMENT_START_WINDOW_MINUTES = 2; // Окно для начала записи
-
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RateLimitProperties rateLimitProperties;
+    private final LocalRateLimiter localRateLimiter;
+
+    // GCRA за один вызов: в ключе хранится теоретическое время следующего запроса (мс).
+    // ARGV[3] — запросы, уже пропущенные локальным ведром: учитываются без проверки, даже если текущий отклонён.
+    // Возвращает 0, если запрос разрешён, иначе через сколько мс можно повторить.
+    private static final DefaultRedisScript<Long> GCRA = new DefaultRedisScript<>("""
+            local interval = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local served = tonumber(ARGV[3])
+            local time = redis.call('time')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local tat = tonumber(redis.call('get', KEYS[1]))
+            if tat == nil or tat < now then
+                tat = now
+            end
+            tat = tat + interval * served
+            local newTat = tat + interval
+            local allowAt = newTat - interval * burst
+            if allowAt > now then
+                if served > 0 then
+                    redis.call('set', KEYS[1], tat, 'px', tat - now)
+                end
+                return allowAt - now
+            end
+            redis.call('set', KEYS[1], newTat, 'px', newTat - now)
+            return 0""", Long.class);
 
     @Override
-    public boolean isFloodDetected(Long userId, String messageText) {
+    public boolean isFloodDetected(Long userId, String messageText, RateLimitAction action) {
         if (userService.isAdmin(userId)) {
             return false;
         }
         if (isCommand(messageText)) {
             return false;
         }
-        String key = "flood:" + userId;
-        Long count = redisTemplate.opsForValue().increment(key, 1L);
-
-        if (count != null && count == 1) {
-            redisTemplate.expire(key, Duration.ofMinutes(1));
+        if (localRateLimiter.isBanned(userId)) {
+            log.debug("Пользователь {} забанен за флуд, запрос отклонён", userId);
+            return true;
         }
-        if (count != null && count > MAX_REQUESTS_PER_MINUTE) {
-            log.warn("Обнаружена флудовая атака от пользователя {}: {} запрос/мин", userId, count);
+        if (!tryAcquire(userId, action)) {
+            log.warn("Обнаружена флудовая атака от пользователя {} ({}), бан на {}",
+                    userId, action, rateLimitProperties.getBanDuration());
+            localRateLimiter.ban(userId);
             return true;
         }
         return false;
@@ -48,24 +75,41 @@ public class FloodProtectionServiceImpl implements FloodProtectionService {
             return true;
         }
 
-        String key = "appointment_start:" + userId;
-        Long count = redisTemplate.opsForValue().increment(key, 1L);
-
-        if (count != null && count == 1) {
-            redisTemplate.expire(key, Duration.ofMinutes(APPOINTMENT_START_WINDOW_MINUTES));
-        }
-
-        boolean allowed = count == null || count <= MAX_APPOINTMENT_STARTS;
+        boolean allowed = tryAcquire(userId, RateLimitAction.BOOKING_START);
 
-        log.debug("Appointment start check - User: {}, Attempts: {}, Allowed: {}",
-                userId, count, allowed);
+        log.debug("Appointment start check - User: {}, Allowed: {}", userId, allowed);
 
         if (!allowed) {
-            log.warn("📋 User {} exceeded appointment start limit: {}", userId, count);
+            log.warn("📋 User {} exceeded appointment start limit", userId);
         }
         return allowed;
     }
 
+    // Сначала локальное ведро; общий счётчик в Redis — когда оно почти пусто или набралась пачка неучтённых
+    private boolean tryAcquire(Long userId, RateLimitAction action) {
+        return switch (localRateLimiter.tryAcquire(userId, action)) {
+            case ALLOW -> true;
+            case REJECT -> false;
+            case CHECK_SHARED -> acquireShared(userId, action) == 0;
+        };
+    }
+
+    // 0 — запрос разрешён; если Redis недоступен, полагаемся на локальное ведро
+    private long acquireShared(Long userId, RateLimitAction action) {
+        RateLimitProperties.Limit limit = rateLimitProperties.of(action);
+        long intervalMs = Math.max(1, limit.getWindow().toMillis() / Math.max(1, limit.getRequests()));
+        String key = "flood:" + action.getKey() + ":" + userId;
+        int served = localRateLimiter.drainUnreported(userId, action) - 1; // без текущего запроса
+        try {
+            Long retryAfterMs = stringRedisTemplate.execute(GCRA, List.of(key),
+                    String.valueOf(intervalMs), String.valueOf(limit.getRequests()), String.valueOf(served));
+            return retryAfterMs != null ? retryAfterMs : 0;
+        } catch (DataAccessException e) {
+            log.warn("Redis недоступен для проверки лимита {} пользователя {}: {}", action, userId, e.getMessage());
+            return 0;
+        }
+    }
+
     private boolean isCommand(String text) {
         if (text == null) return false;
         String trimmed = text.trim();
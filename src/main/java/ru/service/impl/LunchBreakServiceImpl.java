@@ -7,6 +7,8 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.model.LunchBreak;
 import ru.repository.LunchBreakRepository;
 import ru.service.LunchBreakService;
+import ru.service.calendar.WorkingCalendar;
+import ru.service.calendar.WorkingCalendarHolder;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -18,24 +20,13 @@ import java.util.List;
 public class LunchBreakServiceImpl implements LunchBreakService {
 
     private final LunchBreakRepository lunchBreakRepository;
+    private final WorkingCalendarHolder workingCalendarHolder;
 
+    // Слот попадает на обед, если начинается во время перерыва; проверка по снимку календаря
     @Override
     public boolean isLunchTime(LocalDateTime dateTime) {
-        log.info("Check if lunch time");
         if (dateTime == null) return false;
-
-        LunchBreak lunchBreak = getLunchBreakByDayOfWeek(dateTime.getDayOfWeek().getValue());
-        if (lunchBreak == null || !lunchBreak.getIsActive()) {
-            return false;
-        }
-
-        LocalTime slotStart = dateTime.toLocalTime();
-
-        // пропускаем только слот, который начинается во время обеда
-        // Слот 14:00-15:00 начинается в 14:00, что во время обеда 14:00-15:00 → пропускаем
-        // Слот 13:00-14:00 начинается в 13:00, что ДО обеда → НЕ пропускаем
-        // Слот 15:00-16:00 начинается в 15:00, что ПОСЛЕ обеда → НЕ пропускаем
-        return !slotStart.isBefore(lunchBreak.getStartTime()) && slotStart.isBefore(lunchBreak.getEndTime());
+        return workingCalendarHolder.get().isLunch(dateTime.toLocalDate(), WorkingCalendar.minuteOf(dateTime.toLocalTime()));
     }
 
     @Override
@@ -68,5 +59,6 @@ public class LunchBreakServiceImpl implements LunchBreakService {
             lunchBreak.setEndTime(null);
             lunchBreak.setIsActive(false);
         }
+        workingCalendarHolder.refreshAfterCommit();
     }
 }
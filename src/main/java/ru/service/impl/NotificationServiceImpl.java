@@ -3,80 +3,127 @@ package ru.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.conf.OutboundProperties;
+import ru.model.enums.OutboundPriority;
 import ru.service.NotificationService;
+import ru.service.outbound.MessageContentCache;
+import ru.service.outbound.OutboundQueue;
 import ru.util.AdminKeyboard;
 import ru.util.KeyboardFactory;
 
-import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationServiceImpl implements NotificationService {
 
-    private final TelegramClient telegramClient;
+    private final OutboundQueue outboundQueue;
+    private final OutboundProperties outboundProperties;
+    private final MessageContentCache contentCache;
     private final KeyboardFactory keyboardFactory;
     private final AdminKeyboard adminKeyboard;
 
+    // Отправка без ожидания: ошибки только логируются
     @Override
     public void sendMessage(Long chatId, String text) {
-        SendMessage msg = SendMessage.builder()
-                .chatId(chatId)
-                .text(text)
-                .build();
-        execute(msg);
+        logFailure(sendMessageAsync(chatId, text, null), "отправить сообщение", chatId);
     }
 
     @Override
     public void sendMessage(Long chatId, String text, InlineKeyboardMarkup replyMarkup) {
-        SendMessage msg = SendMessage.builder()
-                .chatId(chatId)
-                .text(text)
-                .replyMarkup(replyMarkup)
-                .build();
-        execute(msg);
+        logFailure(sendMessageAsync(chatId, text, replyMarkup), "отправить сообщение", chatId);
     }
 
     @Override
     public void sendOrEditMessage(Long chatId, Integer messageId, String text, InlineKeyboardMarkup replyMarkup) {
+        logFailure(sendOrEditMessageAsync(chatId, messageId, text, replyMarkup), "отправить сообщение", chatId);
+    }
+
+    // Ждём ответ — нужен messageId отправленного сообщения
+    @Override
+    public Message sendMessageAndReturn(Long chatId, String text, InlineKeyboardMarkup replyMarkup) {
+        try {
+            return sendMessageAsync(chatId, text, replyMarkup)
+                    .orTimeout(outboundProperties.getAwaitTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Message> sendMessageAsync(Long chatId, String text, InlineKeyboardMarkup replyMarkup) {
+        return enqueueMessage(chatId, text, replyMarkup, OutboundPriority.INTERACTIVE);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendOrEditMessageAsync(Long chatId, Integer messageId, String text,
+                                                          InlineKeyboardMarkup replyMarkup) {
         if (messageId == null) {
-            sendMessage(chatId, text, replyMarkup);
-        } else {
-            try {
-                EditMessageText edit = EditMessageText.builder()
-                        .chatId(chatId)
-                        .messageId(messageId)
-                        .text(text)
-                        .replyMarkup(replyMarkup)
-                        .build();
-                execute(edit);
-            } catch (Exception e) {
-                log.warn("Не удалось отредактировать сообщение {}, отправляю новое сообщение", messageId, e);
-                sendMessage(chatId, text, replyMarkup);
-            }
+            return sendMessageAsync(chatId, text, replyMarkup).thenApply(message -> null);
+        }
+        if (contentCache.isShown(chatId, messageId, text, replyMarkup)) {
+            log.debug("Сообщение {} в чате {} не изменилось, редактирование пропущено", messageId, chatId);
+            return CompletableFuture.completedFuture(null);
         }
+        EditMessageText edit = EditMessageText.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .text(text)
+                .replyMarkup(replyMarkup)
+                .build();
+        return outboundQueue.submit(chatId, edit, OutboundPriority.INTERACTIVE)
+                .<Void>thenApply(result -> {
+                    contentCache.shown(chatId, messageId, text, replyMarkup);
+                    return null;
+                })
+                .exceptionallyCompose(e -> {
+                    if (isNotModified(e)) {
+                        // Содержимое уже такое — запоминаем и не шлём новое сообщение
+                        contentCache.shown(chatId, messageId, text, replyMarkup);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    contentCache.forget(chatId, messageId);
+                    log.warn("Не удалось отредактировать сообщение {}, отправляю новое сообщение", messageId, e);
+                    return sendMessageAsync(chatId, text, replyMarkup).thenApply(message -> null);
+                });
     }
 
     @Override
-    public Message sendMessageAndReturn(Long chatId, String text, InlineKeyboardMarkup replyMarkup) {
+    public CompletableFuture<Message> enqueueMessage(Long chatId, String text, InlineKeyboardMarkup replyMarkup,
+                                                     OutboundPriority priority) {
         SendMessage msg = SendMessage.builder()
                 .chatId(chatId)
                 .text(text)
                 .replyMarkup(replyMarkup)
                 .build();
-        try {
-            return telegramClient.execute(msg);
-        } catch (TelegramApiException e) {
-            throw new RuntimeException(e);
-        }
+        return outboundQueue.submit(chatId, msg, priority)
+                .thenApply(message -> {
+                    contentCache.shown(chatId, message.getMessageId(), text, replyMarkup);
+                    return message;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Message> sendDocumentAsync(Long chatId, Path file, String fileName, String caption) {
+        SendDocument document = SendDocument.builder()
+                .chatId(chatId)
+                .document(new InputFile(file.toFile(), fileName))
+                .caption(caption)
+                .build();
+        return outboundQueue.submit(chatId, document, OutboundPriority.INTERACTIVE);
     }
 
     //Универсальный метод "с кнопкой внизу"
@@ -87,15 +134,17 @@ public class NotificationServiceImpl implements NotificationService {
 
     @Override
     public void deleteMessage(Long chatId, Integer messageId) {
+        logFailure(deleteMessageAsync(chatId, messageId), "удалить сообщение " + messageId, chatId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteMessageAsync(Long chatId, Integer messageId) {
         if (chatId == null || messageId == null) {
             log.warn("Не удалось удалить сообщение: chatId или messageId равен null");
-            return;
-        }
-        try {
-            telegramClient.execute(new DeleteMessage(chatId.toString(), messageId));
-        } catch (Exception e) {
-            log.warn("Не удалось удалить сообщение {} в чате {}", messageId, chatId, e);
+            return CompletableFuture.completedFuture(false);
         }
+        contentCache.forget(chatId, messageId);
+        return outboundQueue.submit(chatId, new DeleteMessage(chatId.toString(), messageId), OutboundPriority.INTERACTIVE);
     }
 
     @Override
@@ -125,12 +174,18 @@ public class NotificationServiceImpl implements NotificationService {
         sendMessage(chatId, text, adminKeyboard.getUserManagementMenu());
     }
 
-    // Универсальный execute
-    private <T extends Serializable, M extends BotApiMethod<T>> T execute(M method) {
-        try {
-            return telegramClient.execute(method);
-        } catch (TelegramApiException e) {
-            throw new RuntimeException(e);
-        }
+    private static boolean isNotModified(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof TelegramApiRequestException request
+                && request.getApiResponse() != null
+                && request.getApiResponse().contains("message is not modified");
+    }
+
+    private void logFailure(CompletableFuture<?> future, String action, Long chatId) {
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("Не удалось {} в чате {}", action, chatId, e);
+            }
+        });
     }
 }
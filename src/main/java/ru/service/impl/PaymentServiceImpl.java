@@ -11,6 +11,7 @@ import ru.model.User;
 import ru.repository.PaymentRepository;
 import ru.service.PaymentService;
 import ru.service.UserService;
+import ru.service.payment.PaymentRollup;
 
 import java.math.BigDecimal;
 import java.sql.Date;
@@ -19,6 +20,7 @@ import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +30,7 @@ public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final UserService userService;
+    private final PaymentRollup paymentRollup;
 
     @Override
     @Transactional
@@ -50,23 +53,23 @@ public class PaymentServiceImpl implements PaymentService {
         if (client != null) {
             payment.setUser(client);
         }
-        return paymentRepository.save(payment);
+        Payment saved = paymentRepository.save(payment);
+        paymentRollup.add(saved);
+        return saved;
     }
 
     @Override
     public BigDecimal getTodayIncome() {
         log.info("Получение дохода за сегодня");
         LocalDate today = LocalDate.now();
-        return paymentRepository.sumAmountByDate(today.atStartOfDay(),
-                today.plusDays(1).atStartOfDay());
+        return paymentRepository.sumAmountByDays(today, today.plusDays(1));
     }
 
     @Override
     public BigDecimal getYesterdayIncome() {
         log.info("Получение дохода за вчерашний день");
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        return paymentRepository.sumAmountByDate(yesterday.atStartOfDay(),
-                yesterday.plusDays(1).atStartOfDay());
+        return paymentRepository.sumAmountByDays(yesterday, yesterday.plusDays(1));
     }
 
     @Override
@@ -91,7 +94,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Transactional(readOnly = true)
     public List<Payment> getTodayPayments() {
         LocalDate today = LocalDate.now();
-        return paymentRepository.findByServiceDateBetween(
+        return paymentRepository.findByServiceDateRange(
                 today.atStartOfDay(),
                 today.plusDays(1).atStartOfDay()
         );
@@ -101,7 +104,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Transactional(readOnly = true)
     public List<Payment> getYesterdayPayments() {
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        return paymentRepository.findByServiceDateBetween(
+        return paymentRepository.findByServiceDateRange(
                 yesterday.atStartOfDay(),
                 yesterday.plusDays(1).atStartOfDay()
         );
@@ -113,7 +116,7 @@ public class PaymentServiceImpl implements PaymentService {
         log.info("Получение дохода за неделю");
         LocalDate startOfWeek = LocalDate.now().with(DayOfWeek.MONDAY);
         LocalDate endOfWeek = LocalDate.now().plusDays(1);
-        return paymentRepository.sumAmountByDate(startOfWeek.atStartOfDay(), endOfWeek.atStartOfDay());
+        return paymentRepository.sumAmountByDays(startOfWeek, endOfWeek);
     }
 
     @Override
@@ -122,7 +125,7 @@ public class PaymentServiceImpl implements PaymentService {
         log.info("Получение дохода за месяц");
         LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
         LocalDate endOfMonth = LocalDate.now().plusDays(1);
-        return paymentRepository.sumAmountByDate(startOfMonth.atStartOfDay(), endOfMonth.atStartOfDay());
+        return paymentRepository.sumAmountByDays(startOfMonth, endOfMonth);
     }
 
     @Override
@@ -136,10 +139,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Transactional(readOnly = true)
     public BigDecimal getIncomeForPeriod(LocalDate startDate, LocalDate endDate) {
         log.info("Получение дохода за период с {} по {}", startDate, endDate);
-        return paymentRepository.sumAmountByDate(
-                startDate.atStartOfDay(),
-                endDate.plusDays(1).atStartOfDay() // +1 чтобы включить endDate
-        );
+        return paymentRepository.sumAmountByDays(startDate, endDate.plusDays(1)); // +1 чтобы включить endDate
     }
 
     // Получение подробной статистики по дням
@@ -147,10 +147,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Transactional(readOnly = true)
     public Map<LocalDate, BigDecimal> getDetailedIncomeForPeriod(LocalDate startDate, LocalDate endDate) {
         log.info("Получение подробной статистики за период с {} по {}", startDate, endDate);
-        List<Object[]> result = paymentRepository.findDailySumsByPeriod(
-                startDate.atStartOfDay(),
-                endDate.plusDays(1).atStartOfDay()
-        );
+        List<Object[]> result = paymentRepository.findDailySumsByPeriod(startDate, endDate.plusDays(1));
         return result.stream()
                 .collect(Collectors.toMap(
                         arr -> ((Date) arr[0]).toLocalDate(),
@@ -172,4 +169,26 @@ public class PaymentServiceImpl implements PaymentService {
         return hourlyIncome;
     }
 
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PaymentRepository.ClientStats> getClientStatsByPhone(String phone) {
+        return paymentRepository.findClientStatsByKey(PaymentRollup.phoneKey(phone));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PaymentRepository.ClientStats> getClientStatsByUser(Long userId) {
+        return paymentRepository.findClientStatsByUserId(userId);
+    }
+
+    // Берём на одну строку больше страницы — так узнаём, есть ли следующая
+    @Override
+    @Transactional(readOnly = true)
+    public TopClientsPage getTopClients(int page, int pageSize) {
+        int current = Math.max(page, 0);
+        List<PaymentRepository.ClientStats> rows = paymentRepository.findTopClients(pageSize + 1, current * pageSize);
+        boolean hasNext = rows.size() > pageSize;
+        return new TopClientsPage(hasNext ? rows.subList(0, pageSize) : rows, current, hasNext);
+    }
 }
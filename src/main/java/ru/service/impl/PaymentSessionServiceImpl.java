@@ -2,18 +2,16 @@ package ru.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import ru.model.enums.PaymentState;
 import ru.model.enums.ServiceType;
 import ru.service.PaymentSessionService;
+import ru.service.session.HashSession;
+import ru.service.session.SessionStore;
 
 import java.math.BigDecimal;
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.stream.Stream;
 
 import static ru.util.BotConstants.PREFIX_PAYMENT;
 
@@ -22,24 +20,19 @@ import static ru.util.BotConstants.PREFIX_PAYMENT;
 @Slf4j
 public class PaymentSessionServiceImpl implements PaymentSessionService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private static final Duration TTL = Duration.ofHours(24);
+    private final SessionStore sessionStore;
 
-    private void setValue(Long chatId, String keySuffix, String value) {
+    // Сессия платежа хранится одним хешем payment:{chatId}
+    private void setValue(Long chatId, String field, String value) {
         if (chatId == null) return;
-        String key = PREFIX_PAYMENT + chatId + ":" + keySuffix;
-        if (value == null) {
-            redisTemplate.delete(key);
-        } else {
-            redisTemplate.opsForValue().set(key, value, TTL);
-        }
+        HashSession session = sessionStore.get(PREFIX_PAYMENT + chatId);
+        session.put(field, value);
+        sessionStore.save(session);
     }
 
-    private String getValue(Long chatId, String keySuffix) {
+    private String getValue(Long chatId, String field) {
         if (chatId == null) return null;
-        String key = PREFIX_PAYMENT + chatId + ":" + keySuffix;
-        Object obj = redisTemplate.opsForValue().get(key);
-        return obj != null ? obj.toString() : null;
+        return sessionStore.get(PREFIX_PAYMENT + chatId).get(field);
     }
 
     @Override
@@ -173,13 +166,8 @@ public class PaymentSessionServiceImpl implements PaymentSessionService {
     @Override
     public void clearPaymentState(Long chatId) {
         if (chatId == null) return;
-        List<String> keys = Stream.of(
-                        "state", "amount", "serviceDate", "serviceType",
-                        "phone", "name", "statsStartDate", "statsEndDate"
-                )
-                .map(suffix -> PREFIX_PAYMENT + chatId + ":" + suffix)
-                .toList();
-
-        redisTemplate.delete(keys);
+        HashSession session = sessionStore.get(PREFIX_PAYMENT + chatId);
+        session.clear();
+        sessionStore.save(session);
     }
 }
\ No newline at end of file
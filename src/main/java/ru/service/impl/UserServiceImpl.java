@@ -9,6 +9,9 @@ import ru.model.User;
 import ru.model.enums.UserRole;
 import ru.repository.UserRepository;
 import ru.service.UserService;
+import ru.service.cache.AdminStatsCache;
+import ru.service.cache.UserAccess;
+import ru.service.cache.UserAccessCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,6 +23,8 @@ import java.util.Optional;
 @Slf4j
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final UserAccessCache userAccessCache;
+    private final AdminStatsCache adminStatsCache;
 
     @Override
     @Transactional
@@ -52,6 +57,9 @@ public class UserServiceImpl implements UserService {
 
         if (changed) {
             log.info("Обновление пользователя: id={}, username={}, firstName={}", telegramId, username, firstName);
+            if (user.getId() == null) {
+                adminStatsCache.invalidate(); // новый пользователь; метод транзакционный — сброс после коммита
+            }
             return userRepository.save(user);
         } else {
             return user;
@@ -77,16 +85,18 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public Boolean isAdmin(Long chatId) {
-        return findByTelegramId(chatId)
-                .map(user -> UserRole.ADMIN.equals(user.getRole()))
-                .orElse(false);
+        return userAccessCache.get(chatId, this::loadAccess).admin();
     }
 
     @Override
     public boolean isBlocked(Long userId) {
-        return userRepository.findByTelegramId(userId)
-                .map(User::getIsBlocked)
-                .orElse(false);
+        return userAccessCache.get(userId, this::loadAccess).blocked();
+    }
+
+    private UserAccess loadAccess(Long telegramId) {
+        return userRepository.findByTelegramId(telegramId)
+                .map(UserAccess::of)
+                .orElse(UserAccess.UNKNOWN);
     }
 
     @Override
@@ -112,7 +122,9 @@ public class UserServiceImpl implements UserService {
                             .createdAt(LocalDateTime.now())
                             .isBlocked(false)
                             .build();
-                    return userRepository.save(user);
+                    User saved = userRepository.save(user);
+                    adminStatsCache.invalidate();
+                    return saved;
                 });
     }
 
@@ -126,7 +138,9 @@ public class UserServiceImpl implements UserService {
                             .clientPhoneNumber(phoneNumber)
                             .firstName(firstName)
                             .build();
-                    return userRepository.save(newUser);
+                    User saved = userRepository.save(newUser);
+                    adminStatsCache.invalidate();
+                    return saved;
                 }
         );
     }
@@ -138,7 +152,9 @@ public class UserServiceImpl implements UserService {
         user.setClientPhoneNumber(phone);
         user.setUsername("📞 " + phone);
         user.setIsBlocked(false);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        adminStatsCache.invalidate();
+        return saved;
     }
 
 
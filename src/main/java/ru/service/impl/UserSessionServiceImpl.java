@@ -2,18 +2,18 @@ package ru.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import ru.model.enums.AdminAppointmentState;
 import ru.model.enums.PaymentState;
 import ru.model.enums.UserAppointmentState;
 import ru.service.UserSessionService;
+import ru.service.hold.SlotHoldService;
+import ru.service.session.HashSession;
+import ru.service.session.SessionStore;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Arrays;
-import java.util.List;
+import java.util.function.Consumer;
 
 import static ru.util.BotConstants.PREFIX;
 
@@ -22,20 +22,52 @@ import static ru.util.BotConstants.PREFIX;
 @Slf4j
 public class UserSessionServiceImpl implements UserSessionService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final SessionStore sessionStore;
+    private final SlotHoldService slotHoldService;
+
+    // Поля хеша session:{chatId}
+    private static final String STATE = "state";
+    private static final String DATE = "date";
+    private static final String NAME = "name";
+    private static final String MESSAGE_ID = "messageId";
+    private static final String HISTORY_PAGE = "historyPage";
+    private static final String ROLE = "role";
+    private static final String START_TIME = "startTime";
+    private static final String END_TIME = "endTime";
+    private static final String ADMIN_STATE = "adminState";
+
+    private HashSession session(Long chatId) {
+        return sessionStore.get(PREFIX + chatId);
+    }
 
-    private static final Duration TTL = Duration.ofHours(24); // удалять через 24 часа
+    private String get(Long chatId, String field) {
+        return session(chatId).get(field);
+    }
 
-    // Ключи
-    private String keyState(Long chatId) { return PREFIX + chatId + ":state"; }
-    private String keyDate(Long chatId) { return PREFIX + chatId + ":date"; }
-    private String keyName(Long chatId) { return PREFIX + chatId + ":name"; }
-    private String keyMessageId(Long chatId) { return PREFIX + chatId + ":messageId"; }
-    private String keyHistoryPage(Long chatId) { return PREFIX + chatId + ":historyPage"; }
-    private String keyRole(Long chatId) { return PREFIX + chatId + ":role"; }
-    private String keyStartTime(Long chatId) { return PREFIX + chatId + ":startTime";}
-    private String keyEndTime(Long chatId) { return PREFIX + chatId + ":endTime";}
+    private void update(Long chatId, Consumer<HashSession> change) {
+        HashSession session = session(chatId);
+        change.accept(session);
+        sessionStore.save(session);
+    }
 
+    private void set(Long chatId, String field, Object value) {
+        update(chatId, session -> session.put(field, value != null ? value.toString() : null));
+    }
+
+    private void clear(Long chatId, String... fields) {
+        update(chatId, session -> session.remove(fields));
+    }
+
+    private Integer getInteger(Long chatId, String field) {
+        String value = get(chatId, field);
+        if (value == null) return null;
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            log.warn("Некорректное число в сессии {}: {}={}", chatId, field, value);
+            return null;
+        }
+    }
 
     // Установить состояние
     @Override
@@ -45,16 +77,16 @@ public class UserSessionServiceImpl implements UserSessionService {
             clearUserState(chatId);
             return;
         }
-        redisTemplate.opsForValue().set(keyState(chatId), state.getValue(), TTL);
+        set(chatId, STATE, state.getValue());
     }
 
     @Override
     public UserAppointmentState getUserState(Long chatId) {
         if (chatId == null) return null;
-        Object state = redisTemplate.opsForValue().get(keyState(chatId));
+        String state = get(chatId, STATE);
         if (state != null) {
             try {
-                return UserAppointmentState.fromValue(state.toString());
+                return UserAppointmentState.fromValue(state);
             } catch (IllegalArgumentException e) {
                 log.warn("Неизвестное состояние пользователя в Redis: {}", state);
             }
@@ -66,20 +98,19 @@ public class UserSessionServiceImpl implements UserSessionService {
     @Override
     public void setPendingDate(Long chatId, LocalDateTime dateTime) {
         log.info("💾 Сохраняем pendingDate для {}: {}", chatId, dateTime);
-        redisTemplate.opsForValue().set(keyDate(chatId), dateTime, TTL);
+        set(chatId, DATE, dateTime);
     }
 
     @Override
     public LocalDateTime getPendingDate(Long chatId) {
-        Object date = redisTemplate.opsForValue().get(keyDate(chatId));
-        log.info("🔍 Читаем pendingDate для {}: raw = {}, type = {}",
-                chatId, date, date != null ? date.getClass() : "null");
+        String date = get(chatId, DATE);
+        log.info("🔍 Читаем pendingDate для {}: raw = {}", chatId, date);
 
-        if (date instanceof String str) {
+        if (date != null) {
             try {
-                return LocalDateTime.parse(str);
+                return LocalDateTime.parse(date);
             } catch (Exception e) {
-                log.warn("❌ Не удалось распарсить LocalDateTime из строки: {}", str);
+                log.warn("❌ Не удалось распарсить LocalDateTime из строки: {}", date);
                 return null;
             }
         }
@@ -89,50 +120,40 @@ public class UserSessionServiceImpl implements UserSessionService {
     // ID сообщения
     @Override
     public void setPendingMessageId(Long chatId, Integer messageId) {
-        redisTemplate.opsForValue().set(keyMessageId(chatId), messageId, TTL);
+        set(chatId, MESSAGE_ID, messageId);
     }
 
     @Override
     public Integer getPendingMessageId(Long chatId) {
-        Object id = redisTemplate.opsForValue().get(keyMessageId(chatId));
-        return id instanceof Integer ? (Integer) id : null;
+        return getInteger(chatId, MESSAGE_ID);
     }
 
     @Override
     public void clearPendingMessageId(Long chatId) {
-        redisTemplate.delete(keyMessageId(chatId));
+        clear(chatId, MESSAGE_ID);
     }
 
     // Страница истории
     @Override
     public void setHistoryPage(Long chatId, Integer page) {
-        redisTemplate.opsForValue().set(keyHistoryPage(chatId), page, TTL);
+        set(chatId, HISTORY_PAGE, page);
     }
 
     @Override
     public Integer getHistoryPage(Long chatId) {
-        Object page = redisTemplate.opsForValue().get(keyHistoryPage(chatId));
-        return page instanceof Integer ? (Integer) page : null;
+        return getInteger(chatId, HISTORY_PAGE);
     }
 
     @Override
     public void clearHistoryPage(Long chatId) {
-        redisTemplate.delete(keyHistoryPage(chatId));
+        clear(chatId, HISTORY_PAGE);
     }
 
     // Полная очистка
     @Override
     public void clearUserState(Long chatId) {
-        redisTemplate.delete(
-                List.of(
-                        keyState(chatId),
-                        keyDate(chatId),
-                        keyName(chatId),
-                        keyMessageId(chatId),
-                        keyHistoryPage(chatId)
-                )
-
-        );
+        slotHoldService.release(chatId, getPendingDate(chatId));
+        clear(chatId, STATE, DATE, NAME, MESSAGE_ID, HISTORY_PAGE);
     }
 
     @Override
@@ -142,7 +163,7 @@ public class UserSessionServiceImpl implements UserSessionService {
             clearAdminState(chatId);
             return;
         }
-        redisTemplate.opsForValue().set(keyAdminState(chatId), state.name(), TTL);
+        set(chatId, ADMIN_STATE, state.name());
     }
 
     @Override
@@ -152,16 +173,16 @@ public class UserSessionServiceImpl implements UserSessionService {
             clearAdminState(chatId);
             return;
         }
-        redisTemplate.opsForValue().set(keyAdminState(chatId), paymentState.name(), TTL);
+        set(chatId, ADMIN_STATE, paymentState.name());
     }
 
     @Override
     public AdminAppointmentState getAdminState(Long chatId) {
         if (chatId == null) return null;
-        Object value = redisTemplate.opsForValue().get(keyAdminState(chatId));
+        String value = get(chatId, ADMIN_STATE);
         if (value != null) {
             try {
-                return AdminAppointmentState.valueOf(value.toString());
+                return AdminAppointmentState.valueOf(value);
             } catch (IllegalArgumentException e) {
                 log.warn("Не удалось распарсить AdminAppointmentState: {}", value);
             }
@@ -171,98 +192,84 @@ public class UserSessionServiceImpl implements UserSessionService {
 
     @Override
     public void clearAdminState(Long chatId) {
-        redisTemplate.delete(keyAdminState(chatId));
+        clear(chatId, ADMIN_STATE);
     }
 
 
     @Override
     public void setRole(Long chatId, String role) {
         if (chatId == null) return;
-        redisTemplate.opsForValue().set(keyRole(chatId), role, TTL);
+        set(chatId, ROLE, role);
     }
 
     @Override
     public String getRole(Long chatId) {
         if (chatId == null) return "USER";
-        Object role = redisTemplate.opsForValue().get(keyRole(chatId));
-        return role != null ? role.toString() : "USER";
+        String role = get(chatId, ROLE);
+        return role != null ? role : "USER";
     }
 
     @Override
     public void clearRole(Long chatId) {
-        redisTemplate.delete(keyRole(chatId));
+        clear(chatId, ROLE);
     }
 
     @Override
     public void setPendingName(Long chatId, String name) {
-        redisTemplate.opsForValue().set(keyName(chatId), name, TTL);
+        set(chatId, NAME, name);
     }
 
     @Override
     public String getPendingName(Long chatId) {
-        Object name = redisTemplate.opsForValue().get(keyName(chatId));
-        return name != null ? name.toString() : null;
+        return get(chatId, NAME);
     }
 
     @Override
     public void clearPendingName(Long chatId) {
-        redisTemplate.delete(keyName(chatId));
+        clear(chatId, NAME);
     }
 
     @Override
     public void clearPendingDate(Long chatId) {
-        redisTemplate.delete(keyDate(chatId));
+        slotHoldService.release(chatId, getPendingDate(chatId));
+        clear(chatId, DATE);
     }
 
     @Override
     public void setPendingStartTime(Long chatId, LocalTime time) {
-        redisTemplate.opsForValue().set(keyStartTime(chatId), time.toString(), TTL);
+        set(chatId, START_TIME, time);
     }
 
     @Override
     public LocalTime getPendingStartTime(Long chatId) {
-        Object value = redisTemplate.opsForValue().get(keyStartTime(chatId));
-        return value != null ? LocalTime.parse(value.toString()) : null;
+        String value = get(chatId, START_TIME);
+        return value != null ? LocalTime.parse(value) : null;
     }
 
     @Override
     public void clearPendingStartTime(Long chatId) {
-        redisTemplate.delete(keyStartTime(chatId));
+        clear(chatId, START_TIME);
     }
 
     @Override
     public void setPendingEndTime(Long chatId, LocalTime time) {
-        redisTemplate.opsForValue().set(keyEndTime(chatId), time.toString(), TTL);
+        set(chatId, END_TIME, time);
     }
 
     @Override
     public LocalTime getPendingEndTime(Long chatId) {
-        Object value = redisTemplate.opsForValue().get(keyEndTime(chatId));
-        return value != null ? LocalTime.parse(value.toString()) : null;
+        String value = get(chatId, END_TIME);
+        return value != null ? LocalTime.parse(value) : null;
     }
 
     @Override
     public void clearPendingEndTime(Long chatId) {
-        redisTemplate.delete(keyEndTime(chatId));
+        clear(chatId, END_TIME);
     }
 
     @Override
     public void clearAllSessions(Long chatId) {
-        redisTemplate.delete(Arrays.asList(
-                keyState(chatId),
-                keyDate(chatId),
-                keyName(chatId),
-                keyMessageId(chatId),
-                keyHistoryPage(chatId),
-                keyRole(chatId),
-                keyStartTime(chatId),
-                keyEndTime(chatId),
-                keyAdminState(chatId)
-        ));
+        slotHoldService.release(chatId, getPendingDate(chatId));
+        update(chatId, HashSession::clear);
     }
-
-    private String keyAdminState(Long chatId) {
-        return PREFIX + chatId + ":adminState";
-    }
-
 }
@@ -6,11 +6,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.model.WorkDaysOverride;
 import ru.model.WorkSchedule;
-import ru.model.enums.StatusAppointment;
-import ru.repository.AppointmentRepository;
 import ru.repository.WorkDaysOverrideRepository;
 import ru.repository.WorkScheduleRepository;
 import ru.service.WorkScheduleService;
+import ru.service.availability.DayOccupancy;
+import ru.service.availability.SlotAvailabilityIndex;
+import ru.service.calendar.WorkingCalendar;
+import ru.service.calendar.WorkingCalendarHolder;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,76 +27,51 @@ public class WorkScheduleServiceImpl implements WorkScheduleService {
 
     private final WorkScheduleRepository workScheduleRepository;
     private final WorkDaysOverrideRepository workDaysOverrideRepository;
-    private final AppointmentRepository appointmentRepository;
+    private final WorkingCalendarHolder workingCalendarHolder;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
 
     // Проверить, рабочий ли день
     @Override
     public boolean isWorkingDay(LocalDate date) {
-        log.info("isWorkDay");
-        // Проверяем исключения
-        var override = workDaysOverrideRepository.findByDate(date);
-        if (override.isPresent()) {
-            return override.get().getIsWorkingDay();
-        }
-        // Проверяем по дню недели
-        int dayOfWeek = date.getDayOfWeek().getValue();
-        var schedule = workScheduleRepository.findByDayOfWeek(dayOfWeek);
-        return schedule != null && schedule.getIsWorkingDay();
+        return workingCalendarHolder.get().isWorkingDay(date);
     }
 
     // Получить рабочее время для даты
     public LocalTime[] getWorkTimeForDate(LocalDate date) {
-        var override = workDaysOverrideRepository.findByDate(date);
-        if (override.isPresent() && override.get().getIsWorkingDay()) {
-            return new LocalTime[]{
-                    override.get().getStartTime(),
-                    override.get().getEndTime()
-            };
-        }
-
-        int dayOfWeek = date.getDayOfWeek().getValue();
-        var schedule = workScheduleRepository.findByDayOfWeek(dayOfWeek);
-        if (schedule != null && schedule.getIsWorkingDay()) {
-            return new LocalTime[]{
-                    schedule.getStartTime(),
-                    schedule.getEndTime()
-            };
+        WorkingCalendar calendar = workingCalendarHolder.get();
+        int start = calendar.startMinute(date);
+        int end = calendar.endMinute(date);
+        if (start == WorkingCalendar.NONE || end == WorkingCalendar.NONE) {
+            return null; // не рабочий день
         }
-
-        return null; // не рабочий день
+        return new LocalTime[]{LocalTime.of(start / 60, start % 60), LocalTime.of(end / 60, end % 60)};
     }
 
-    // Получить доступные слоты на дату (по 1 часу)
+    // Получить доступные слоты на дату (по 1 часу): сетка — из снимка календаря, занятость — из индекса
     @Override
     public List<LocalDateTime> getAvailableTimeSlots(LocalDate date) {
-        if (!isWorkingDay(date)) {
+        WorkingCalendar calendar = workingCalendarHolder.get();
+        int start = calendar.startMinute(date);
+        int end = calendar.endMinute(date);
+        if (start == WorkingCalendar.NONE || end == WorkingCalendar.NONE) {
             return List.of();
         }
 
-        LocalTime[] workTime = getWorkTimeForDate(date);
-        if (workTime == null) return List.of();
-
-        LocalTime start = workTime[0];
-        LocalTime end = workTime[1];
-
-        LocalDateTime current = date.atTime(start);
-        LocalDateTime endTime = date.atTime(end);
+        DayOccupancy occupancy = slotAvailabilityIndex.day(date);
+        LocalDateTime now = LocalDateTime.now();
         List<LocalDateTime> slots = new ArrayList<>();
-
-        while (current.isBefore(endTime)) {
-            if (current.isAfter(LocalDateTime.now()) && isTimeSlotAvailable(current)) {
-                slots.add(current);
+        for (int minute = start; minute <= end; minute += 60) {
+            if (!calendar.isBookable(date, minute) || occupancy.isBusy(minute)) {
+                continue;
+            }
+            LocalDateTime slot = date.atTime(minute / 60, minute % 60);
+            if (slot.isAfter(now)) {
+                slots.add(slot);
             }
-            current = current.plusHours(1);
         }
         return slots;
     }
 
-    private boolean isTimeSlotAvailable(LocalDateTime dateTime) {
-        return appointmentRepository.findByDateTime(dateTime).stream()
-                .noneMatch(appointment -> appointment.getStatus() != StatusAppointment.CANCELED);
-    }
-
     @Transactional
     @Override
     public void updateWorkDay(Integer dayOfWeek, LocalTime startTime, LocalTime endTime, boolean isWorking) {
@@ -110,6 +87,7 @@ public class WorkScheduleServiceImpl implements WorkScheduleService {
             schedule.setStartTime(null);
             schedule.setEndTime(null);
         }
+        workingCalendarHolder.refreshAfterCommit();
     }
 
     // Установить исключение (например, выходной или сокращённый день)
@@ -134,6 +112,7 @@ public class WorkScheduleServiceImpl implements WorkScheduleService {
             override.setReason(reason);
         }
         workDaysOverrideRepository.save(override);
+        workingCalendarHolder.refreshAfterCommit();
     }
 
     @Transactional(readOnly = true)
@@ -152,5 +131,6 @@ public class WorkScheduleServiceImpl implements WorkScheduleService {
     @Transactional
     public void deleteOverrideByDate(LocalDate date) {
         workDaysOverrideRepository.deleteByDate(date);
+        workingCalendarHolder.refreshAfterCommit();
     }
 }
@@ -0,0 +1,65 @@
+package ru.service.outbound;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import ru.conf.OutboundProperties;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Что сейчас показано в сообщении бота: SHA-256 текста и клавиатуры по (chatId, messageId).
+ * Позволяет не отправлять редактирование, которое ничего не меняет. Размер ограничен, вытесняются давно не
+ * использованные записи; если записи нет — редактируем как обычно.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageContentCache {
+
+    private record Key(Long chatId, Integer messageId) {
+    }
+
+    private final OutboundProperties properties;
+
+    private Cache<Key, byte[]> contents;
+
+    @PostConstruct
+    void init() {
+        contents = Caffeine.newBuilder().maximumSize(properties.getEditCacheSize()).build();
+    }
+
+    public boolean isShown(Long chatId, Integer messageId, String text, InlineKeyboardMarkup markup) {
+        byte[] shown = contents.getIfPresent(new Key(chatId, messageId));
+        return shown != null && MessageDigest.isEqual(shown, digest(text, markup));
+    }
+
+    public void shown(Long chatId, Integer messageId, String text, InlineKeyboardMarkup markup) {
+        if (chatId != null && messageId != null) {
+            contents.put(new Key(chatId, messageId), digest(text, markup));
+        }
+    }
+
+    public void forget(Long chatId, Integer messageId) {
+        contents.invalidate(new Key(chatId, messageId));
+    }
+
+    // Совпадение 32-битных хешей приводило к пропуску настоящего изменения, поэтому криптографический дайджест.
+    // Клавиатура берётся через toString (Lombok выводит все кнопки с текстом и callback data)
+    private static byte[] digest(String text, InlineKeyboardMarkup markup) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(String.valueOf(text).getBytes(UTF_8));
+            sha.update((byte) 0);
+            sha.update(String.valueOf(markup).getBytes(UTF_8));
+            return sha.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
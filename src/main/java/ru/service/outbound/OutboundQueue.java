@@ -0,0 +1,310 @@
+package ru.service.outbound;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.conf.OutboundProperties;
+import ru.model.enums.OutboundPriority;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь исходящих запросов к Bot API. Один поток-диспетчер выбирает задачу по приоритету полос,
+ * соблюдая общий лимит и лимит на чат: задача чата, упёршегося в лимит, не задерживает другие чаты.
+ * Запросы уходят через executeAsync, одновременно не больше maxInFlight и не больше одного на чат
+ * (кроме удалений) — так сообщения одного чата доходят в порядке постановки. На 429 задача возвращается в начало
+ * своей полосы и ждёт retry_after, чат ставится на паузу.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboundQueue {
+
+    // Сколько задач полосы просматриваем в поисках чата, который не упёрся в лимит
+    private static final int SCAN_LIMIT = 256;
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Вызов Bot API: обычный метод или отправка файла (у них разные перегрузки executeAsync)
+    @FunctionalInterface
+    private interface Call<T extends Serializable> {
+        CompletableFuture<T> execute(TelegramClient client) throws TelegramApiException;
+    }
+
+    private static final class Task<T extends Serializable> {
+        final OutboundPriority priority;
+        final Long chatId;
+        final Call<T> call;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Удаление не обязано ждать предыдущих запросов чата и не задерживает следующие
+        final boolean ordered;
+        int attempts;
+        long notBefore;
+
+        Task(OutboundPriority priority, Long chatId, Call<T> call, boolean ordered) {
+            this.priority = priority;
+            this.chatId = chatId;
+            this.call = call;
+            this.ordered = chatId != null && ordered;
+        }
+    }
+
+    private final TelegramClient telegramClient;
+    private final OutboundProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<OutboundPriority, ArrayDeque<Task<?>>> lanes = new EnumMap<>(OutboundPriority.class);
+    private final Map<OutboundPriority, AtomicInteger> depth = new EnumMap<>(OutboundPriority.class);
+    private final Map<OutboundPriority, Timer> latency = new EnumMap<>(OutboundPriority.class);
+    private SendBucket global;
+    private Cache<Long, SendBucket> chats;
+    private final Set<Long> busyChats = new HashSet<>();
+    private int inFlight;
+    private Counter retries;
+    private Thread dispatcher;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void start() {
+        long now = System.nanoTime();
+        global = new SendBucket(properties.getGlobalPerSecond(), properties.getGlobalPerSecond(), now);
+        chats = Caffeine.newBuilder().expireAfterAccess(properties.getChatIdle()).build();
+        for (OutboundPriority priority : OutboundPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            AtomicInteger size = new AtomicInteger();
+            depth.put(priority, size);
+            Gauge.builder("telegram.outbound.queue", size, AtomicInteger::get)
+                    .tag("lane", priority.name())
+                    .register(meterRegistry);
+            latency.put(priority, Timer.builder("telegram.outbound.send")
+                    .tag("lane", priority.name())
+                    .register(meterRegistry));
+        }
+        retries = meterRegistry.counter("telegram.outbound.retries");
+        dispatcher = new Thread(this::dispatchLoop, "telegram-outbound");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Ждём выхода диспетчера, задачи, не успевшие уйти, завершаем ошибкой — иначе их ожидание повиснет
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        int dropped = 0;
+        lock.lock();
+        try {
+            for (Map.Entry<OutboundPriority, ArrayDeque<Task<?>>> lane : lanes.entrySet()) {
+                for (Task<?> task : lane.getValue()) {
+                    task.future.completeExceptionally(new IllegalStateException("Очередь отправки остановлена"));
+                    dropped++;
+                }
+                lane.getValue().clear();
+                depth.get(lane.getKey()).set(0);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (dropped > 0) {
+            log.warn("Очередь отправки остановлена, не отправлено задач: {}", dropped);
+        }
+    }
+
+    public <T extends Serializable> CompletableFuture<T> submit(Long chatId, BotApiMethod<T> method,
+                                                                OutboundPriority priority) {
+        return enqueue(new Task<>(priority, chatId, client -> client.executeAsync(method),
+                !(method instanceof DeleteMessage)));
+    }
+
+    public CompletableFuture<Message> submit(Long chatId, SendDocument document, OutboundPriority priority) {
+        return enqueue(new Task<>(priority, chatId, client -> client.executeAsync(document), true));
+    }
+
+    private <T extends Serializable> CompletableFuture<T> enqueue(Task<T> task) {
+        task.notBefore = System.nanoTime();
+        lock.lock();
+        try {
+            if (!running) {
+                task.future.completeExceptionally(new IllegalStateException("Очередь отправки остановлена"));
+                return task.future;
+            }
+            lanes.get(task.priority).addLast(task);
+            depth.get(task.priority).incrementAndGet();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.future;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            Task<?> task = null;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                if (inFlight >= properties.getMaxInFlight()) {
+                    changed.await(); // освободится по завершении запроса
+                    continue;
+                }
+                long wait = global.waitNanos(now);
+                task = wait == 0 ? pickReady(now) : null;
+                if (task == null) {
+                    long idle = wait == 0 ? nextReadyIn(now) : wait;
+                    changed.awaitNanos(Math.min(idle, MAX_IDLE_NANOS));
+                    continue;
+                }
+                inFlight++;
+                if (task.ordered) {
+                    busyChats.add(task.chatId);
+                }
+                global.take(now);
+                if (task.chatId != null) {
+                    chat(task.chatId, now).take(now);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Ошибка не должна останавливать диспетчер: задачу завершаем ошибкой, слот освобождаем
+                log.error("Ошибка в диспетчере исходящей очереди", e);
+                if (task != null) {
+                    task.future.completeExceptionally(e);
+                    finished(task, null);
+                }
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            send(task);
+        }
+    }
+
+    // Первая задача по приоритету, чей чат может отправлять прямо сейчас
+    private Task<?> pickReady(long now) {
+        for (OutboundPriority priority : OutboundPriority.values()) {
+            Iterator<Task<?>> iterator = lanes.get(priority).iterator();
+            for (int scanned = 0; iterator.hasNext() && scanned < SCAN_LIMIT; scanned++) {
+                Task<?> task = iterator.next();
+                if (task.notBefore - now <= 0 && !(task.ordered && busyChats.contains(task.chatId))
+                        && (task.chatId == null || chat(task.chatId, now).waitNanos(now) == 0)) {
+                    iterator.remove();
+                    depth.get(priority).decrementAndGet();
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Когда освободится хотя бы одна задача — чтобы не крутить цикл вхолостую
+    private long nextReadyIn(long now) {
+        long wait = MAX_IDLE_NANOS;
+        for (ArrayDeque<Task<?>> lane : lanes.values()) {
+            Iterator<Task<?>> iterator = lane.iterator();
+            for (int scanned = 0; iterator.hasNext() && scanned < SCAN_LIMIT; scanned++) {
+                Task<?> task = iterator.next();
+                if (task.ordered && busyChats.contains(task.chatId)) {
+                    continue; // разбудит завершение запроса этого чата
+                }
+                long chatWait = task.chatId == null ? 0 : chat(task.chatId, now).waitNanos(now);
+                wait = Math.min(wait, Math.max(task.notBefore - now, chatWait));
+            }
+        }
+        return Math.max(wait, 1);
+    }
+
+    private SendBucket chat(Long chatId, long now) {
+        return chats.get(chatId, id -> new SendBucket(properties.getPerChatBurst(), properties.getPerChatPerSecond(), now));
+    }
+
+    private <T extends Serializable> void send(Task<T> task) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> call;
+        try {
+            call = task.call.execute(telegramClient);
+        } catch (TelegramApiException | RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((result, error) -> {
+            sample.stop(latency.get(task.priority));
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            Integer retryAfter = retryAfter(cause);
+            boolean retry = retryAfter != null && task.attempts < properties.getMaxRetries();
+            finished(task, retry ? retryAfter : null);
+            if (retry) {
+                return;
+            }
+            if (cause == null) {
+                task.future.complete(result);
+            } else {
+                task.future.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private static Integer retryAfter(Throwable error) {
+        if (error instanceof TelegramApiRequestException e && Integer.valueOf(429).equals(e.getErrorCode())
+                && e.getParameters() != null) {
+            return e.getParameters().getRetryAfter();
+        }
+        return null;
+    }
+
+    // Освобождаем слот запроса и чат; при 429 задача встаёт в начало своей полосы
+    private void finished(Task<?> task, Integer retryAfterSeconds) {
+        if (retryAfterSeconds != null) {
+            log.warn("Telegram вернул 429 для чата {}, повтор через {} с", task.chatId, retryAfterSeconds);
+            retries.increment();
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            if (task.ordered) {
+                busyChats.remove(task.chatId);
+            }
+            if (retryAfterSeconds != null) {
+                long now = System.nanoTime();
+                task.attempts++;
+                task.notBefore = now + TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+                if (task.chatId != null) {
+                    chat(task.chatId, now).pause(task.notBefore);
+                }
+                lanes.get(task.priority).addFirst(task);
+                depth.get(task.priority).incrementAndGet();
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.service.outbound;
+
+// Ведро токенов для исходящих сообщений; вызывается только под блокировкой очереди
+final class SendBucket {
+    private final double capacity;
+    private final double refillPerNanos;
+    private double tokens;
+    private long updatedAt;
+    private long pausedUntil;
+
+    SendBucket(int capacity, int perSecond, long now) {
+        this.capacity = Math.max(1, capacity);
+        this.refillPerNanos = Math.max(1, perSecond) / 1e9;
+        this.tokens = this.capacity;
+        this.updatedAt = now;
+    }
+
+    // Сколько наносекунд ждать до следующего токена, 0 — можно отправлять
+    long waitNanos(long now) {
+        if (pausedUntil - now > 0) {
+            return pausedUntil - now;
+        }
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerNanos);
+    }
+
+    void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    // Telegram вернул 429 с retry_after
+    void pause(long until) {
+        pausedUntil = Math.max(pausedUntil, until);
+        tokens = 0;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - updatedAt) * refillPerNanos);
+        updatedAt = now;
+    }
+}
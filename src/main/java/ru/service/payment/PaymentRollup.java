@@ -0,0 +1,87 @@
+package ru.service.payment;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.conf.PaymentRollupProperties;
+import ru.model.Payment;
+import ru.repository.PaymentRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Итоги платежей по дням и часам (payment_daily_rollup, payment_hourly_rollup) и по клиентам (client_stats).
+ * Каждый новый платёж прибавляется в той же транзакции, что и сохраняется; ночная сверка пересчитывает
+ * последние дни и клиентов с платежами за эти дни по сырым платежам — на случай правок в обход бота.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentRollup {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentRollupProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Payment payment) {
+        LocalDate day = payment.getServiceDate().toLocalDate();
+        paymentRepository.addToDailyRollup(day, payment.getAmount());
+        paymentRepository.addToHourlyRollup(day, payment.getServiceDate().getHour(), payment.getAmount());
+        String clientKey = clientKey(payment);
+        if (clientKey != null) {
+            paymentRepository.addToClientStats(clientKey,
+                    payment.getUser() != null ? payment.getUser().getId() : null,
+                    payment.getClientPhoneNumber(), payment.getClientName(),
+                    payment.getAmount(), payment.getServiceDate());
+        }
+    }
+
+    // То же, что PaymentRepository.CLIENT_KEY; платёж без телефона и пользователя ни к кому не относится
+    static String clientKey(Payment payment) {
+        if (payment.getClientPhoneNumber() != null) {
+            return phoneKey(payment.getClientPhoneNumber());
+        }
+        return payment.getUser() != null ? "user:" + payment.getUser().getId() : null;
+    }
+
+    public static String phoneKey(String phone) {
+        return "phone:" + normalizePhone(phone);
+    }
+
+    // То же, что PaymentRepository.NORMALIZED_PHONE: +7 и 8 в начале номера не различаются
+    static String normalizePhone(String phone) {
+        String digits = phone.replaceAll("\\D", "");
+        return "7" + (digits.length() > 10 ? digits.substring(digits.length() - 10) : digits);
+    }
+
+    @Scheduled(cron = "#{@paymentRollupProperties.reconcileCron}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        try {
+            rebuild(today.minusDays(properties.getReconcileDays()), today.plusDays(1));
+        } catch (Exception e) {
+            log.error("Не удалось пересчитать итоги платежей", e);
+        }
+    }
+
+    // Пересчёт итогов за дни [from, to) по таблице payments, в отдельной транзакции
+    public void rebuild(LocalDate from, LocalDate to) {
+        int[] rebuilt = transactionTemplate.execute(status -> {
+            paymentRepository.lockRollups();
+            paymentRepository.deleteDailyRollup(from, to);
+            paymentRepository.deleteHourlyRollup(from, to);
+            paymentRepository.deleteClientStats(from.atStartOfDay(), to.atStartOfDay());
+            paymentRepository.rebuildHourlyRollup(from.atStartOfDay(), to.atStartOfDay());
+            int days = paymentRepository.rebuildDailyRollup(from.atStartOfDay(), to.atStartOfDay());
+            int clients = paymentRepository.rebuildClientStats(from.atStartOfDay(), to.atStartOfDay());
+            return new int[]{days, clients};
+        });
+        log.info("Итоги платежей пересчитаны с {} по {}: дней с платежами {}, клиентов {}",
+                from, to.minusDays(1), rebuilt[0], rebuilt[1]);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.service.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import ru.conf.RateLimitProperties;
+import ru.model.enums.RateLimitAction;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Первый уровень защиты от флуда: ведро токенов в памяти на каждого пользователя.
+ * Явный флуд отсекается без обращения к Redis. Разрешённые локально запросы копятся и передаются
+ * в общий счётчик пачкой — при следующей проверке в Redis, которая нужна, когда ведро почти пусто
+ * или пачка набралась (четверть ведра). Так Redis видит весь трафик пользователя со всех инстансов,
+ * и лимит выдерживается глобально, а не N-кратно. Цена — запаздывание: на каждом из N инстансов
+ * до пачки запросов может пройти до того, как общий счётчик о них узнает, то есть всплеск
+ * сверх лимита — не больше N × четверть ведра. Нарушители банятся на всех инстансах через pub/sub.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LocalRateLimiter {
+
+    public enum Decision {
+        ALLOW,        // далеко от лимита, Redis не нужен
+        CHECK_SHARED, // близко к лимиту — решает общий счётчик
+        REJECT        // локальное ведро пусто
+    }
+
+    private static final String BAN_CHANNEL = "flood:ban";
+    private static final double SHARED_CHECK_SHARE = 0.25; // доля ведра: ниже остатка или размер пачки — спрашиваем Redis
+    private static final long MAX_TRACKED_USERS = 100_000;
+
+    private final RateLimitProperties properties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<RateLimitAction, Cache<Long, TokenBucket>> buckets = new EnumMap<>(RateLimitAction.class);
+    private Cache<Long, Boolean> bans;
+
+    @PostConstruct
+    void init() {
+        for (RateLimitAction action : RateLimitAction.values()) {
+            // За окно простоя ведро полностью наполняется, дальше его можно забыть
+            buckets.put(action, Caffeine.newBuilder()
+                    .expireAfterAccess(properties.of(action).getWindow())
+                    .maximumSize(MAX_TRACKED_USERS)
+                    .build());
+        }
+        bans = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getBanDuration())
+                .maximumSize(MAX_TRACKED_USERS)
+                .build();
+
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                bans.put(Long.parseLong(new String(message.getBody(), UTF_8)), Boolean.TRUE);
+            } catch (NumberFormatException e) {
+                log.warn("Некорректное сообщение о бане: {}", message);
+            }
+        }, new ChannelTopic(BAN_CHANNEL));
+    }
+
+    public boolean isBanned(Long userId) {
+        return bans.getIfPresent(userId) != null;
+    }
+
+    public Decision tryAcquire(Long userId, RateLimitAction action) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(action).get(userId, id -> new TokenBucket(properties.of(action), now));
+        double left = bucket.tryTake(now);
+        if (left < 0) {
+            return Decision.REJECT;
+        }
+        double share = bucket.capacity() * SHARED_CHECK_SHARE;
+        return left < share || bucket.unreported() >= Math.max(1, share) ? Decision.CHECK_SHARED : Decision.ALLOW;
+    }
+
+    // Запросы, разрешённые локально с прошлой проверки в Redis, включая текущий
+    public int drainUnreported(Long userId, RateLimitAction action) {
+        TokenBucket bucket = buckets.get(action).getIfPresent(userId);
+        return bucket == null ? 1 : Math.max(1, bucket.drainUnreported());
+    }
+
+    public void ban(Long userId) {
+        bans.put(userId, Boolean.TRUE);
+        try {
+            stringRedisTemplate.convertAndSend(BAN_CHANNEL, userId.toString());
+        } catch (Exception e) {
+            log.error("Не удалось разослать бан пользователя {}", userId, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.service.ratelimit;
+
+import ru.conf.RateLimitProperties;
+
+// Локальное ведро токенов одного пользователя для одного класса действий
+final class TokenBucket {
+    private final int capacity;
+    private final double refillPerNanos;
+    private double tokens;
+    private long updatedAt;
+    private int unreported; // разрешено локально, но ещё не учтено в общем счётчике
+
+    TokenBucket(RateLimitProperties.Limit limit, long now) {
+        this.capacity = Math.max(1, limit.getRequests());
+        this.refillPerNanos = capacity / (double) limit.getWindow().toNanos();
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    // Остаток токенов после списания или -1, если ведро пусто
+    synchronized double tryTake(long now) {
+        tokens = Math.min(capacity, tokens + (now - updatedAt) * refillPerNanos);
+        updatedAt = now;
+        if (tokens < 1) {
+            return -1;
+        }
+        tokens -= 1;
+        unreported++;
+        return tokens;
+    }
+
+    synchronized int unreported() {
+        return unreported;
+    }
+
+    // Сколько запросов передать в общий счётчик; счёт начинается заново
+    synchronized int drainUnreported() {
+        int count = unreported;
+        unreported = 0;
+        return count;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
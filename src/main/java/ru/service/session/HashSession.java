@@ -0,0 +1,75 @@
+package ru.service.session;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сессия чата, хранимая в Redis одним хешем. Изменения копятся в памяти
+ * и записываются в Redis одной пачкой через {@link SessionStore}.
+ */
+public final class HashSession {
+    @Getter
+    private final String key;
+    private final Map<String, String> values;
+    private final Map<String, String> changed = new HashMap<>();
+    private final Set<String> removed = new HashSet<>();
+
+    HashSession(String key, Map<String, String> values) {
+        this.key = key;
+        this.values = values;
+    }
+
+    public String get(String field) {
+        return values.get(field);
+    }
+
+    public void put(String field, String value) {
+        if (value == null) {
+            remove(field);
+            return;
+        }
+        if (value.equals(values.put(field, value))) {
+            return;
+        }
+        changed.put(field, value);
+        removed.remove(field);
+    }
+
+    public void remove(String field) {
+        changed.remove(field);
+        if (values.remove(field) != null) {
+            removed.add(field);
+        }
+    }
+
+    public void remove(String... fields) {
+        for (String field : fields) {
+            remove(field);
+        }
+    }
+
+    public void clear() {
+        remove(values.keySet().toArray(String[]::new));
+    }
+
+    boolean isDirty() {
+        return !changed.isEmpty() || !removed.isEmpty();
+    }
+
+    Map<String, String> changed() {
+        return changed;
+    }
+
+    Set<String> removed() {
+        return removed;
+    }
+
+    void markClean() {
+        changed.clear();
+        removed.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package ru.service.session;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Единица работы над сессиями-хешами в рамках одного апдейта. Каждая сессия читается лениво
+ * одним HGETALL, а изменения всех сессий фиксируются в конце одним пайплайном HSET + HDEL + EXPIRE.
+ * Если обработчик упал, изменения отбрасываются. Вне апдейта (планировщик и т.п.) изменения пишутся сразу.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionStore {
+
+    private static final Duration TTL = Duration.ofHours(24); // удалять через 24 часа
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private static final class Scope {
+        final Map<String, HashSession> sessions = new LinkedHashMap<>();
+        boolean rollbackOnly;
+    }
+
+    public void begin() {
+        SCOPE.set(new Scope());
+    }
+
+    public void commit() {
+        Scope scope = SCOPE.get();
+        if (scope == null) {
+            return;
+        }
+        if (scope.rollbackOnly) {
+            log.debug("Изменения сессий отменены после ошибки обработки: {}", scope.sessions.keySet());
+        } else {
+            flush(scope.sessions.values());
+        }
+        SCOPE.remove();
+    }
+
+    // Всё, что не зафиксировано через commit(), отбрасывается
+    public void close() {
+        SCOPE.remove();
+    }
+
+    // Для обработчиков, которые сами ловят исключение и отвечают пользователю
+    public void setRollbackOnly() {
+        Scope scope = SCOPE.get();
+        if (scope != null) {
+            scope.rollbackOnly = true;
+        }
+    }
+
+    public HashSession get(String key) {
+        Scope scope = SCOPE.get();
+        return scope != null ? scope.sessions.computeIfAbsent(key, this::load) : load(key);
+    }
+
+    // В рамках апдейта запись отложена до commit()
+    public void save(HashSession session) {
+        if (SCOPE.get() == null) {
+            flush(List.of(session));
+        }
+    }
+    private HashSession load(String key) {
+        Map<String, String> values = new HashMap<>();
+        stringRedisTemplate.<String, String>opsForHash().entries(key).forEach(values::put);
+        return new HashSession(key, values);
+    }
+
+    private void flush(Collection<HashSession> sessions) {
+        List<HashSession> dirty = sessions.stream().filter(HashSession::isDirty).toList();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                dirty.forEach(session -> write(connection, session));
+                return null;
+            });
+            dirty.forEach(HashSession::markClean);
+        } catch (Exception e) {
+            log.error("Не удалось сохранить сессии {}", dirty.stream().map(HashSession::getKey).toList(), e);
+        }
+    }
+
+    private void write(RedisConnection connection, HashSession session) {
+        byte[] key = session.getKey().getBytes(UTF_8);
+        if (!session.changed().isEmpty()) {
+            Map<byte[], byte[]> fields = new HashMap<>();
+            session.changed().forEach((field, value) -> fields.put(field.getBytes(UTF_8), value.getBytes(UTF_8)));
+            connection.hashCommands().hMSet(key, fields);
+        }
+        if (!session.removed().isEmpty()) {
+            connection.hashCommands().hDel(key, session.removed().stream()
+                    .map(field -> field.getBytes(UTF_8))
+                    .toArray(byte[][]::new));
+        }
+        connection.keyCommands().expire(key, TTL.toSeconds());
+    }
+}
@@ -1,6 +1,7 @@
 package ru.util;
 
-import lombok.AllArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
@@ -10,25 +11,104 @@ import ru.model.enums.CallbackPaymentType;
 import ru.model.enums.CallbackType;
 import ru.model.enums.ServiceType;
 import ru.model.enums.UserRole;
+import ru.repository.PaymentRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
 
 import static ru.util.BotConstants.*;
 
+/**
+ * Клавиатуры админки. Постоянные меню собираются в конструкторе и отдаются общими экземплярами,
+ * клавиатуры редактирования дня запоминаются по дню недели.
+ */
 @Component
-@AllArgsConstructor
 public class AdminKeyboard {
 
+    private static final int MEMO_SIZE = 100;
+
+    private record DayKey(String kind, int dayOfWeek) {
+    }
+
     private final KeyboardFactory keyboardFactory;
+    private final Cache<DayKey, InlineKeyboardMarkup> memo = Caffeine.newBuilder().maximumSize(MEMO_SIZE).build();
+
+    private final InlineKeyboardMarkup mainAdminMenu;
+    private final InlineKeyboardMarkup userManagementMenu;
+    private final InlineKeyboardMarkup appointmentsSubMenu;
+    private final InlineKeyboardMarkup scheduleSubMenu;
+    private final InlineKeyboardMarkup paymentMenu;
+    private final InlineKeyboardMarkup statisticsMenu;
+    private final InlineKeyboardMarkup exportMenu;
+    private final InlineKeyboardMarkup clientCardKeyboard;
+    private final InlineKeyboardMarkup serviceTypesKeyboard;
+    private final InlineKeyboardMarkup confirmPaymentKeyboard;
+    private final InlineKeyboardMarkup cancelPaymentKeyboard;
+    private final InlineKeyboardRow backToAdminMenu;
+    private final InlineKeyboardRow backToAppointmentsMenu;
+    private final InlineKeyboardRow backToScheduleMenu;
+
+    public AdminKeyboard(KeyboardFactory keyboardFactory) {
+        this.keyboardFactory = keyboardFactory;
+        this.backToAdminMenu = keyboardFactory.row("⬅️ Назад в меню", "admin_back");
+        this.backToAppointmentsMenu = keyboardFactory.row("⬅️ Назад в меню записей", "admin:menu:appointments");
+        this.backToScheduleMenu = keyboardFactory.row("⬅️ Назад", "admin:menu:schedule");
+        this.mainAdminMenu = buildMainAdminMenu();
+        this.userManagementMenu = buildUserManagementMenu();
+        this.appointmentsSubMenu = buildAppointmentsSubMenu();
+        this.scheduleSubMenu = buildScheduleSubMenu();
+        this.paymentMenu = buildPaymentMenu();
+        this.statisticsMenu = buildStatisticsMenu();
+        this.exportMenu = buildExportMenu();
+        this.clientCardKeyboard = keyboardFactory.freeze(List.of(
+                keyboardFactory.row("⬅️ К топу клиентов", CallbackPaymentType.PAYMENT_CLIENT_STATS.getPrefix()),
+                keyboardFactory.row("⬅️ В меню платежей", CallbackPaymentType.PAYMENT_MENU.getPrefix())
+        ));
+        this.serviceTypesKeyboard = buildServiceTypesKeyboard();
+        this.confirmPaymentKeyboard = keyboardFactory.freeze(List.of(new InlineKeyboardRow(List.of(
+                keyboardFactory.createButton("✅ Подтвердить платеж", CallbackPaymentType.PAYMENT_CONFIRM.getPrefix()),
+                cancelPaymentButton()
+        ))));
+        this.cancelPaymentKeyboard = keyboardFactory.freeze(List.of(new InlineKeyboardRow(List.of(cancelPaymentButton()))));
+    }
 
     public InlineKeyboardMarkup getMainAdminMenu() {
-        return new InlineKeyboardMarkup(List.of(
+        return mainAdminMenu;
+    }
+
+    public InlineKeyboardMarkup getUserManagementMenu() {
+        return userManagementMenu;
+    }
+
+    public InlineKeyboardMarkup getAppointmentsSubMenu() {
+        return appointmentsSubMenu;
+    }
+
+    public InlineKeyboardMarkup getScheduleSubMenu() {
+        return scheduleSubMenu;
+    }
+
+    public InlineKeyboardMarkup getPaymentMenu() {
+        return paymentMenu;
+    }
+
+    public InlineKeyboardMarkup getStatisticsMenu() {
+        return statisticsMenu;
+    }
+
+    public InlineKeyboardMarkup getExportMenu() {
+        return exportMenu;
+    }
+
+    public InlineKeyboardMarkup getClientCardKeyboard() {
+        return clientCardKeyboard;
+    }
+
+    private InlineKeyboardMarkup buildMainAdminMenu() {
+        return keyboardFactory.freeze(List.of(
                 keyboardFactory.row("📋 Записи", "admin:menu:appointments"),
                 keyboardFactory.row(CMD_ADMIN_SCHEDULE_MENU, "admin:menu:schedule"),
                 keyboardFactory.row(CMD_ALL_USERS, "admin_show_users"),
@@ -38,16 +118,16 @@ public class AdminKeyboard {
         ));
     }
 
-    public InlineKeyboardMarkup getUserManagementMenu() {
-        return new InlineKeyboardMarkup(List.of(
+    private InlineKeyboardMarkup buildUserManagementMenu() {
+        return keyboardFactory.freeze(List.of(
                 keyboardFactory.row(CMD_BLOCKED_USER, "admin_block_"),
                 keyboardFactory.row(CMD_UNBLOCKED_USER, "admin_unblock_"),
                 keyboardFactory.row(CMD_ADMIN_BACK, "admin_back")
         ));
     }
 
-    public InlineKeyboardMarkup getAppointmentsSubMenu() {
-        return new InlineKeyboardMarkup(List.of(
+    private InlineKeyboardMarkup buildAppointmentsSubMenu() {
+        return keyboardFactory.freeze(List.of(
                 keyboardFactory.row(CMD_ALL_APPOINTMENTS, CallbackType.ADMIN_SHOW_APPOINTMENTS.getPrefix()),
                 keyboardFactory.row(CMD_ADMIN_APPOINTMENTS_TODAY, CallbackType.ADMIN_ALL_TODAY_APP.getPrefix()),
                 keyboardFactory.row(CMD_ADMIN_APPOINTMENTS_TOMORROW, CallbackType.ADMIN_ALL_TOMORROW_APP.getPrefix()),
@@ -56,8 +136,8 @@ public class AdminKeyboard {
         ));
     }
 
-    public InlineKeyboardMarkup getScheduleSubMenu() {
-        return new InlineKeyboardMarkup(List.of(
+    private InlineKeyboardMarkup buildScheduleSubMenu() {
+        return keyboardFactory.freeze(List.of(
                 keyboardFactory.row(CMD_ADMIN_SCHEDULE_MENU, "admin:schedule:menu"),
                 keyboardFactory.row(CMD_ADMIN_EDIT_WORK_SCHEDULE, "admin:edit:schedule"),
                 keyboardFactory.row(CMD_ADMIN_ALL_OVERRIDES, "admin:overrides"),
@@ -66,7 +146,7 @@ public class AdminKeyboard {
         ));
     }
 
-    public InlineKeyboardMarkup getPaymentMenu() {
+    private InlineKeyboardMarkup buildPaymentMenu() {
         InlineKeyboardRow row0 = new InlineKeyboardRow(List.of(
                 keyboardFactory.createButton(CMD_ADD_NEW_PAYMENT,
                         CallbackPaymentType.PAYMENT_CREATE_NEW.getPrefix())
@@ -76,11 +156,34 @@ public class AdminKeyboard {
                         CallbackPaymentType.PAYMENT_STATISTICS.getPrefix()))
         );
         InlineKeyboardRow row2 = new InlineKeyboardRow(List.of(
+                keyboardFactory.createButton(CMD_PAYMENT_EXPORT_MENU,
+                        CallbackPaymentType.PAYMENT_EXPORT_MENU.getPrefix()))
+        );
+        InlineKeyboardRow row3 = new InlineKeyboardRow(List.of(
+                keyboardFactory.createButton(CMD_PAYMENT_CLIENT_STATS,
+                        CallbackPaymentType.PAYMENT_CLIENT_STATS.getPrefix()))
+        );
+        InlineKeyboardRow row4 = new InlineKeyboardRow(List.of(
                 keyboardFactory.backToAdminMenu())
         );
-        return new InlineKeyboardMarkup(List.of(row0, row1, row2));
+        return keyboardFactory.freeze(List.of(row0, row1, row2, row3, row4));
     }
-    public InlineKeyboardMarkup getStatisticsMenu() {
+
+    // callback: payment:export:<payments|appointments>_<month|prev|all>
+    private InlineKeyboardMarkup buildExportMenu() {
+        String prefix = CallbackPaymentType.PAYMENT_EXPORT.getPrefix();
+        List<InlineKeyboardRow> rows = new ArrayList<>();
+        for (String[] dataset : new String[][]{{"payments", "💵 Платежи"}, {"appointments", "📋 Записи"}}) {
+            rows.add(keyboardFactory.row(dataset[1] + " — этот месяц", prefix + dataset[0] + "_month"));
+            rows.add(keyboardFactory.row(dataset[1] + " — прошлый месяц", prefix + dataset[0] + "_prev"));
+            rows.add(keyboardFactory.row(dataset[1] + " — всё время", prefix + dataset[0] + "_all"));
+        }
+        rows.add(new InlineKeyboardRow(List.of(
+                keyboardFactory.createButton("⬅️ Назад", CallbackPaymentType.PAYMENT_MENU.getPrefix()))));
+        return keyboardFactory.freeze(rows);
+    }
+
+    private InlineKeyboardMarkup buildStatisticsMenu() {
 
         InlineKeyboardRow row1 = new InlineKeyboardRow(List.of(
                 keyboardFactory.createButton(CMD_PAYMENT_TODAY,
@@ -104,10 +207,42 @@ public class AdminKeyboard {
         InlineKeyboardRow rowBackToAdmMenu = new InlineKeyboardRow(List.of(
                 keyboardFactory.backToAdminMenu()
         ));
-        return new InlineKeyboardMarkup(List.of(row1, row2, row3, rowBackToAdmMenu));
+        return keyboardFactory.freeze(List.of(row1, row2, row3, rowBackToAdmMenu));
+    }
+
+    // Топ клиентов: кнопка на каждого клиента страницы открывает его карточку
+    public InlineKeyboardMarkup getTopClientsKeyboard(List<PaymentRepository.ClientStats> clients, int page,
+                                                      int pageSize, boolean hasNext) {
+        List<InlineKeyboardRow> rows = new ArrayList<>();
+        int rank = page * pageSize;
+        for (PaymentRepository.ClientStats client : clients) {
+            String callback = client.getClientPhoneNumber() != null
+                    ? CallbackPaymentType.PAYMENT_CLIENT_BY_PHONE.getPrefix() + client.getClientPhoneNumber()
+                    : CallbackPaymentType.PAYMENT_CLIENT_BY_USER.getPrefix() + client.getUserId();
+            rows.add(keyboardFactory.row(String.format("%d. %s · %s руб.", ++rank,
+                    client.getClientName() != null ? client.getClientName() : "Без имени",
+                    client.getTotal().stripTrailingZeros().toPlainString()), callback));
+        }
+        if (page > 0 || hasNext) {
+            InlineKeyboardRow pagination = new InlineKeyboardRow();
+            if (page > 0) {
+                pagination.add(keyboardFactory.createButton("⬅️ Назад",
+                        CallbackPaymentType.PAYMENT_CLIENT_TOP_PAGE.getPrefix() + (page - 1)));
+            }
+            pagination.add(keyboardFactory.createButton("стр. " + (page + 1), "noop"));
+            if (hasNext) {
+                pagination.add(keyboardFactory.createButton("Вперёд ➡️",
+                        CallbackPaymentType.PAYMENT_CLIENT_TOP_PAGE.getPrefix() + (page + 1)));
+            }
+            rows.add(pagination);
+        }
+        rows.add(keyboardFactory.row(CMD_PAYMENT_CLIENT_SEARCH, CallbackPaymentType.PAYMENT_CLIENT_SEARCH.getPrefix()));
+        rows.add(keyboardFactory.row("⬅️ В меню платежей", CallbackPaymentType.PAYMENT_MENU.getPrefix()));
+        return new InlineKeyboardMarkup(rows);
     }
 
-    public InlineKeyboardMarkup getUsersListKeyboard(List<User> users, int page, int totalPages) {
+    // Пагинация по курсору: в callback крайний пользователь страницы и номер следующей страницы
+    public InlineKeyboardMarkup getUsersListKeyboard(List<User> users, int page, boolean hasPrevious, boolean hasNext) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         List<User> userWithId = users.stream()
                 .filter(user -> user.getTelegramId() != null)
@@ -120,7 +255,7 @@ public class AdminKeyboard {
 
             InlineKeyboardButton userButton = InlineKeyboardButton.builder()
                     .text(userInfo)
-                    .callbackData("admin_user_detail_" + user.getTelegramId())
+                    .callbackData(CallbackPaymentType.PAYMENT_CLIENT_BY_USER.getPrefix() + user.getId())
                     .build();
 
             InlineKeyboardButton blockButton = InlineKeyboardButton.builder()
@@ -135,25 +270,25 @@ public class AdminKeyboard {
         }
 
         // пагинация
-        if (totalPages > 1) {
+        if (hasPrevious || hasNext) {
             List<InlineKeyboardButton> paginationButtons = new ArrayList<>();
 
-            if (page > 0) {
+            if (hasPrevious) {
                 paginationButtons.add(InlineKeyboardButton.builder()
                         .text("⬅️ Назад")
-                        .callbackData("admin_users_page_" + (page - 1))
+                        .callbackData("admin_users_page_b" + users.get(0).getId() + "_" + (page - 1))
                         .build());
             }
 
             paginationButtons.add(InlineKeyboardButton.builder()
-                    .text((page + 1) + "/" + totalPages)
+                    .text("стр. " + (page + 1))
                     .callbackData("noop")
                     .build());
 
-            if (page < totalPages - 1) {
+            if (hasNext) {
                 paginationButtons.add(InlineKeyboardButton.builder()
                         .text("Вперёд ➡️")
-                        .callbackData("admin_users_page_" + (page + 1))
+                        .callbackData("admin_users_page_a" + users.get(users.size() - 1).getId() + "_" + (page + 1))
                         .build());
             }
 
@@ -241,17 +376,16 @@ public class AdminKeyboard {
 
     // Кнопка назад в админ меню
     public InlineKeyboardRow backToAdminMenu() {
-        return keyboardFactory.row("⬅️ Назад в меню", "admin_back");
+        return backToAdminMenu;
     }
 
     // Кнопка назад в меню записей
     public InlineKeyboardRow backToAppointmentsMenu() {
-        return keyboardFactory.row("⬅️ Назад в меню записей", "admin:menu:appointments");
+        return backToAppointmentsMenu;
     }
 
     public InlineKeyboardRow backToScheduleMenu() {
-        return new InlineKeyboardRow(List.of(
-                keyboardFactory.createButton("⬅️ Назад", "admin:menu:schedule")));
+        return backToScheduleMenu;
     }
 
     public InlineKeyboardMarkup getWorkScheduleMenu(List<WorkSchedule> schedules) {
@@ -287,6 +421,10 @@ public class AdminKeyboard {
     }
 
     public InlineKeyboardMarkup getEditDayKeyboard(int dayOfWeek, WorkSchedule schedule) {
+        return memo.get(new DayKey("day", dayOfWeek), key -> buildEditDayKeyboard(dayOfWeek));
+    }
+
+    private InlineKeyboardMarkup buildEditDayKeyboard(int dayOfWeek) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         // Варианты времени
         String[][] timeOptions = {
@@ -308,10 +446,14 @@ public class AdminKeyboard {
         // Назад в меню расписания
         rows.add(backToScheduleMenu());
 
-        return new InlineKeyboardMarkup(rows);
+        return keyboardFactory.freeze(rows);
     }
 
     public InlineKeyboardMarkup getEditLunchKeyboard(int dayOfWeek) {
+        return memo.get(new DayKey("lunch", dayOfWeek), key -> buildEditLunchKeyboard(dayOfWeek));
+    }
+
+    private InlineKeyboardMarkup buildEditLunchKeyboard(int dayOfWeek) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         // Варианты времени
         String[][] timeOptions = {
@@ -332,7 +474,7 @@ public class AdminKeyboard {
 
         // Назад в меню расписания
         rows.add(backToScheduleMenu());
-        return new InlineKeyboardMarkup(rows);
+        return keyboardFactory.freeze(rows);
     }
 
     public String getShortDayName(int dayOfWeek) {
@@ -352,7 +494,7 @@ public class AdminKeyboard {
     public InlineKeyboardMarkup getOverridesMenu(List<WorkDaysOverride> workDaysOverrides) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         for (WorkDaysOverride o : workDaysOverrides) {
-            String text = "🗑 " + o.getDate().format(DateTimeFormatter.ofPattern("dd.MM"));
+            String text = "🗑 " + o.getDate().format(DAY_MONTH_FORMAT);
             String callback = "admin:override:delete_" + o.getDate();
             rows.add(new InlineKeyboardRow(List.of(
                     keyboardFactory.createButton(text, callback)
@@ -370,7 +512,7 @@ public class AdminKeyboard {
         for (Appointment a : appointments) {
             User client = a.getUser();
 
-            String buttonText = a.getDateTime().format(DateTimeFormatter.ofPattern("dd.MM"))
+            String buttonText = a.getDateTime().format(DAY_MONTH_FORMAT)
                     + "-" + a.getDateTime().format(TIME_FORMAT)
                     + "👤" + client.getFirstName() + " ❌Отменить";
             InlineKeyboardButton cancelButton = InlineKeyboardButton.builder()
@@ -384,6 +526,10 @@ public class AdminKeyboard {
     }
 
     public InlineKeyboardMarkup getServiceTypesKeyboard() {
+        return serviceTypesKeyboard;
+    }
+
+    private InlineKeyboardMarkup buildServiceTypesKeyboard() {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         for (ServiceType serviceType : ServiceType.values()) {
             String callbackData = "payment:service:" + serviceType.name();
@@ -392,22 +538,15 @@ public class AdminKeyboard {
             )));
         }
         rows.add(new InlineKeyboardRow(List.of(cancelPaymentButton())));
-        return new InlineKeyboardMarkup(rows);
+        return keyboardFactory.freeze(rows);
     }
 
     public InlineKeyboardMarkup getConfirmPaymentKeyboard() {
-        List<InlineKeyboardRow> rows = new ArrayList<>();
-        rows.add(new InlineKeyboardRow(List.of(
-                keyboardFactory.createButton("✅ Подтвердить платеж", CallbackPaymentType.PAYMENT_CONFIRM.getPrefix()),
-                cancelPaymentButton()
-        )));
-        return new InlineKeyboardMarkup(rows);
+        return confirmPaymentKeyboard;
     }
 
     public InlineKeyboardMarkup getCancelPaymentKeyboard() {
-        List<InlineKeyboardRow> rows = new ArrayList<>();
-        rows.add(new InlineKeyboardRow(List.of(cancelPaymentButton())));
-        return new InlineKeyboardMarkup(rows);
+        return cancelPaymentKeyboard;
     }
 
     private InlineKeyboardButton cancelPaymentButton() {
@@ -419,7 +558,7 @@ public class AdminKeyboard {
         List<InlineKeyboardButton> row = new ArrayList<>();
         for (LocalDate date : dates) {
             String callbackData = "payment:select:" + type + ":date_" + date;
-            String buttonText = date.format(DateTimeFormatter.ofPattern("dd.MM (E)", new Locale("ru")));
+            String buttonText = date.format(DAY_BUTTON_FORMAT);
             row.add(InlineKeyboardButton.builder()
                     .text(buttonText)
                     .callbackData(callbackData)
@@ -1,6 +1,7 @@
 package ru.util;
 
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
 public class BotConstants {
 
@@ -62,10 +63,15 @@ public class BotConstants {
     public static final String CMD_PAYMENT_MONTH = ICON_CALENDAR + " Месяц";
     public static final String CMD_TOTAL_PAYMENT_STATS = ICON_MONEY + " Все время";
     public static final String CMD_PAYMENT_CUSTOM_PERIOD = ICON_HISTORY + " Выбор периода";
+    public static final String CMD_PAYMENT_EXPORT_MENU = ICON_LIST + " Выгрузка в CSV";
+    public static final String CMD_PAYMENT_CLIENT_STATS = ICON_USERS + " Топ клиентов";
+    public static final String CMD_PAYMENT_CLIENT_SEARCH = "🔍 Найти клиента по телефону";
 
     // Форматы
     public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
     public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    public static final DateTimeFormatter DAY_MONTH_FORMAT = DateTimeFormatter.ofPattern("dd.MM");
+    public static final DateTimeFormatter DAY_BUTTON_FORMAT = DateTimeFormatter.ofPattern("dd.MM (E)", Locale.of("ru"));
 
     // Redis-префикс
     public static final String PREFIX = "session:";
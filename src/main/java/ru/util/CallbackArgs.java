@@ -0,0 +1,49 @@
+package ru.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+// Разбор аргументов callback-данных прямо из исходной строки, без substring
+public final class CallbackArgs {
+
+    private CallbackArgs() {
+    }
+
+    // Начало аргумента: сразу после префикса, пропуская разделитель '_' (history_page_2)
+    public static int argOffset(String data, String prefix) {
+        int offset = prefix.length();
+        if (!prefix.endsWith("_") && offset < data.length() && data.charAt(offset) == '_') {
+            offset++;
+        }
+        return offset;
+    }
+
+    public static long parseLong(String data, String prefix) {
+        return Long.parseLong(data, argOffset(data, prefix), data.length(), 10);
+    }
+
+    public static int parseInt(String data, String prefix) {
+        return Integer.parseInt(data, argOffset(data, prefix), data.length(), 10);
+    }
+
+    // Дата в формате LocalDate.toString(): yyyy-MM-dd
+    public static LocalDate parseDate(String data, String prefix) {
+        int from = argOffset(data, prefix);
+        if (data.length() - from != 10 || data.charAt(from + 4) != '-' || data.charAt(from + 7) != '-') {
+            throw new DateTimeParseException("Некорректная дата в callback", data, from);
+        }
+        return LocalDate.of(digits(data, from, 4), digits(data, from + 5, 2), digits(data, from + 8, 2));
+    }
+
+    private static int digits(String data, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = data.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new DateTimeParseException("Некорректная дата в callback", data, i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
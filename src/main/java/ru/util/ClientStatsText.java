@@ -0,0 +1,30 @@
+package ru.util;
+
+import ru.repository.PaymentRepository;
+
+import static ru.util.BotConstants.DATE_FORMAT;
+
+// Карточка клиента: одна и та же из топа, списка пользователей и поиска по телефону
+public final class ClientStatsText {
+
+    private ClientStatsText() {
+    }
+
+    public static String card(PaymentRepository.ClientStats stats) {
+        return String.format("""
+                        👤 *%s*
+                        📞 %s
+
+                        💵 Всего потрачено: *%s руб.*
+                        🔁 Визитов: *%d*
+                        🧾 Средний чек: *%s руб.*
+                        📅 Последний визит: %s
+                        """,
+                stats.getClientName() != null ? stats.getClientName() : "Без имени",
+                stats.getClientPhoneNumber() != null ? stats.getClientPhoneNumber() : "нет телефона",
+                stats.getTotal().stripTrailingZeros().toPlainString(),
+                stats.getPaymentsCount(),
+                stats.getAverageTicket().stripTrailingZeros().toPlainString(),
+                stats.getLastVisit().format(DATE_FORMAT));
+    }
+}
@@ -1,5 +1,7 @@
 package ru.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -11,40 +13,64 @@ import ru.model.enums.UserRole;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 import static ru.util.BotConstants.*;
 
+/**
+ * Клавиатуры бота. Постоянные меню собираются один раз и отдаются общими экземплярами,
+ * клавиатуры с параметрами запоминаются по входным данным в ограниченном кеше.
+ * Возвращаемые клавиатуры и их строки менять нельзя — собирайте новую из строк.
+ */
 @Component
 @Slf4j
 public class KeyboardFactory {
 
+    private static final int MEMO_SIZE = 1_000;
+
+    private record SingleButtonKey(String text, String callbackData) {
+    }
+
+    private record PaginationKey(int currentPage, int totalPages, String baseCallback) {
+    }
+
+    private record DateSelectionKey(Map<LocalDate, Integer> freeSlots, UserRole userRole) {
+    }
+
+    private final Cache<Object, InlineKeyboardMarkup> memo = Caffeine.newBuilder().maximumSize(MEMO_SIZE).build();
+
+    private final InlineKeyboardMarkup mainMenu = freeze(List.of(
+            row(CMD_BOOK, "book_appointment"),
+            row(CMD_MY_APPOINTMENTS, "my_appointments"),
+            row(CMD_HISTORY, "history"),
+            row(CMD_CONTACTS, "contacts")
+    ));
+
+    private final InlineKeyboardMarkup cancelStatsButton = freeze(List.of(row("⬅️ Назад в меню статистики",
+            CallbackPaymentType.PAYMENT_CANCEL_STATS.getPrefix())));
+
+    private final InlineKeyboardButton backToAdminMenu = createButton("⬅️ В админ-меню", "admin_back");
+
     public InlineKeyboardMarkup mainMenu() {
-        return new InlineKeyboardMarkup(List.of(
-                row(CMD_BOOK, "book_appointment"),
-                row(CMD_MY_APPOINTMENTS, "my_appointments"),
-                row(CMD_HISTORY, "history"),
-                row(CMD_CONTACTS, "contacts")
-        ));
+        return mainMenu;
     }
 
     // Кнопка "Назад"
     public InlineKeyboardMarkup backButton(String text, String callbackData) {
-        return new InlineKeyboardMarkup(List.of(row(text, callbackData)));
+        return singleButton(text, callbackData);
     }
 
     public InlineKeyboardMarkup cancelStatsButton() {
-        return new InlineKeyboardMarkup(List.of(row("⬅️ Назад в меню статистики",
-                CallbackPaymentType.PAYMENT_CANCEL_STATS.getPrefix())));
+        return cancelStatsButton;
     }
 
     // Универсальный метод: одна кнопка
     public InlineKeyboardMarkup singleButton(String text, String callbackData) {
-        return new InlineKeyboardMarkup(List.of(row(text, callbackData)));
+        return memo.get(new SingleButtonKey(text, callbackData), key -> freeze(List.of(row(text, callbackData))));
     }
 
     // Универсальный метод: одна кнопка внизу под текстом
@@ -58,14 +84,16 @@ public class KeyboardFactory {
     }
 
     public InlineKeyboardButton backToAdminMenu() {
-        return InlineKeyboardButton.builder()
-                .text("⬅️ В админ-меню")
-                .callbackData("admin_back")
-                .build();
+        return backToAdminMenu;
     }
 
     // Пагинация для истории записей
     public InlineKeyboardMarkup historyPagination(int currentPage, int totalPages, String baseCallback) {
+        return memo.get(new PaginationKey(currentPage, totalPages, baseCallback),
+                key -> buildHistoryPagination(currentPage, totalPages, baseCallback));
+    }
+
+    private InlineKeyboardMarkup buildHistoryPagination(int currentPage, int totalPages, String baseCallback) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
         InlineKeyboardRow navRow = new InlineKeyboardRow();
 
@@ -83,7 +111,7 @@ public class KeyboardFactory {
         // Кнопка "Назад в меню"
         rows.add(backButton("🏠 В меню", "back_to_menu").getKeyboard().get(0));
 
-        return new InlineKeyboardMarkup(rows);
+        return freeze(rows);
     }
 
     // Кнопки отмены записи
@@ -138,7 +166,7 @@ public class KeyboardFactory {
             for (int j = i; j < Math.min(i + 3, availableTimes.size()); j++) {
                 LocalTime time = availableTimes.get(j);
                 String callbackData = "payment:time_" + date + "_" + time;
-                rowButtons.add(createButton(time.format(DateTimeFormatter.ofPattern("HH:mm")), callbackData));
+                rowButtons.add(createButton(time.format(TIME_FORMAT), callbackData));
             }
             rows.add(new InlineKeyboardRow(rowButtons));
         }
@@ -148,25 +176,26 @@ public class KeyboardFactory {
 
     public InlineKeyboardMarkup dateSelectionKeyboardForPayment(List<LocalDate> availableDates, UserRole userRole) {
         List<InlineKeyboardRow> rows = new ArrayList<>();
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd.MM (E)", new Locale("ru"));
-
         for (LocalDate date : availableDates) {
             String callbackData = "payment:date_" + date;
-            rows.add(row(date.format(dateFormat), callbackData));
+            rows.add(row(date.format(DAY_BUTTON_FORMAT), callbackData));
         }
-        backToAdminMenu();
         rows.add(backButton("❌ Отменить платеж", "payment:cancel").getKeyboard().get(0));
         return new InlineKeyboardMarkup(rows);
     }
 
-    // Клавиатура выбора даты
-    public InlineKeyboardMarkup dateSelectionKeyboard(List<LocalDate> availableDates, UserRole userRole) {
-        List<InlineKeyboardRow> rows = new ArrayList<>();
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd.MM (E)", new Locale("ru"));
+    // Клавиатура выбора даты: дата и число свободных слотов
+    public InlineKeyboardMarkup dateSelectionKeyboard(Map<LocalDate, Integer> freeSlots, UserRole userRole) {
+        // Ключ — копия: переданную карту вызывающий может изменить
+        Map<LocalDate, Integer> snapshot = new LinkedHashMap<>(freeSlots);
+        return memo.get(new DateSelectionKey(snapshot, userRole),
+                key -> buildDateSelectionKeyboard(snapshot, userRole));
+    }
 
-        for (LocalDate date : availableDates) {
-            rows.add(row(date.format(dateFormat), "date_" + date));
-        }
+    private InlineKeyboardMarkup buildDateSelectionKeyboard(Map<LocalDate, Integer> freeSlots, UserRole userRole) {
+        List<InlineKeyboardRow> rows = new ArrayList<>();
+        freeSlots.forEach((date, free) ->
+                rows.add(row(date.format(DAY_BUTTON_FORMAT) + " · свободно: " + free, "date_" + date)));
 
         // Кнопка "Назад" к меню
         if (userRole == UserRole.USER) {
@@ -176,7 +205,7 @@ public class KeyboardFactory {
             rows.add(backButton("⬅️ Назад в меню записей", "admin:menu:appointments").getKeyboard().get(0));
         }
 
-        return new InlineKeyboardMarkup(rows);
+        return freeze(rows);
     }
 
     // Универсальный метод создания кнопки
@@ -204,6 +233,11 @@ public class KeyboardFactory {
         return new InlineKeyboardMarkup(rows);
     }
 
+    // Общая неизменяемая клавиатура: список строк копируется и больше не меняется
+    public InlineKeyboardMarkup freeze(List<InlineKeyboardRow> rows) {
+        return new InlineKeyboardMarkup(List.copyOf(rows));
+    }
+
     // Создание клавиатуры из массива строк
     public InlineKeyboardMarkup createKeyboard(InlineKeyboardRow... rows) {
         return new InlineKeyboardMarkup(List.of(rows));
@@ -0,0 +1,90 @@
+package ru.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Неизменяемое префиксное дерево: находит значение с самым длинным префиксом строки
+ * за один проход по её символам и без аллокаций.
+ */
+public final class PrefixTrie<E> {
+    private final char[][] edges;  // отсортированные символы переходов каждого узла
+    private final int[][] targets; // узел, в который ведёт соответствующий переход
+    private final Object[] values; // значение, чей префикс заканчивается в узле
+    private final E fallback;
+
+    private PrefixTrie(char[][] edges, int[][] targets, Object[] values, E fallback) {
+        this.edges = edges;
+        this.targets = targets;
+        this.values = values;
+        this.fallback = fallback;
+    }
+
+    public static <E> PrefixTrie<E> of(E[] items, Function<E, String> prefix, E fallback) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        children.add(new TreeMap<>());
+        values.add(null);
+
+        for (E item : items) {
+            String key = prefix.apply(item);
+            if (key == null || key.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                Integer child = children.get(node).get(key.charAt(i));
+                if (child == null) {
+                    child = children.size();
+                    children.get(node).put(key.charAt(i), child);
+                    children.add(new TreeMap<>());
+                    values.add(null);
+                }
+                node = child;
+            }
+            if (values.get(node) != null) {
+                throw new IllegalArgumentException("Дублирующийся префикс: " + key);
+            }
+            values.set(node, item);
+        }
+
+        char[][] edges = new char[children.size()][];
+        int[][] targets = new int[children.size()][];
+        for (int node = 0; node < children.size(); node++) {
+            Map<Character, Integer> map = children.get(node);
+            edges[node] = new char[map.size()];
+            targets[node] = new int[map.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> entry : map.entrySet()) {
+                edges[node][i] = entry.getKey();
+                targets[node][i] = entry.getValue();
+                i++;
+            }
+        }
+        return new PrefixTrie<>(edges, targets, values.toArray(), fallback);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E longestPrefixMatch(CharSequence data) {
+        if (data == null) {
+            return fallback;
+        }
+        Object best = values[0];
+        int node = 0;
+        for (int i = 0; i < data.length(); i++) {
+            int idx = Arrays.binarySearch(edges[node], data.charAt(i));
+            if (idx < 0) {
+                break;
+            }
+            node = targets[node][idx];
+            if (values[node] != null) {
+                best = values[node];
+            }
+        }
+        return best != null ? (E) best : fallback;
+    }
+}
@@ -0,0 +1,26 @@
+-- Суммы платежей по дням и по часам: статистика читает их вместо сырых платежей.
+-- Пополняются в транзакции создания платежа, сверяются с payments ночной задачей
+CREATE TABLE payment_daily_rollup (
+    day DATE PRIMARY KEY,
+    payments_count BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0
+);
+
+CREATE TABLE payment_hourly_rollup (
+    day DATE NOT NULL,
+    hour SMALLINT NOT NULL CHECK (hour BETWEEN 0 AND 23),
+    payments_count BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, hour)
+);
+
+-- Заполняем по уже внесённым платежам
+INSERT INTO payment_daily_rollup (day, payments_count, total)
+SELECT CAST(service_date AS DATE), COUNT(*), SUM(amount)
+FROM payments
+GROUP BY CAST(service_date AS DATE);
+
+INSERT INTO payment_hourly_rollup (day, hour, payments_count, total)
+SELECT CAST(service_date AS DATE), EXTRACT(HOUR FROM service_date), COUNT(*), SUM(amount)
+FROM payments
+GROUP BY CAST(service_date AS DATE), EXTRACT(HOUR FROM service_date);
@@ -0,0 +1,4 @@
+-- Суммы за диапазон service_date читаются из индекса без обращения к таблице (index-only scan).
+-- Прежний индекс по одному service_date становится лишним
+CREATE INDEX idx_payments_service_date_amount ON payments (service_date) INCLUDE (amount);
+DROP INDEX IF EXISTS idx_payments_service_date;
@@ -0,0 +1,26 @@
+-- Итоги по клиентам: сколько потратил, сколько раз был, когда последний раз.
+-- Клиент — номер телефона из платежа, без телефона — пользователь. Пополняется в транзакции создания платежа
+CREATE TABLE client_stats (
+    client_key VARCHAR(64) PRIMARY KEY, -- 'phone:+79991234567' или 'user:42'
+    user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+    client_phone_number VARCHAR(20),
+    client_name VARCHAR(255),
+    payments_count BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    last_visit TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_client_stats_total ON client_stats (total DESC, client_key); -- рейтинг клиентов
+CREATE INDEX idx_client_stats_phone ON client_stats (client_phone_number);
+CREATE INDEX idx_client_stats_user_id ON client_stats (user_id);
+
+-- Заполняем по уже внесённым платежам
+INSERT INTO client_stats (client_key, user_id, client_phone_number, client_name, payments_count, total, last_visit)
+SELECT COALESCE('phone:' || p.client_phone_number, 'user:' || p.user_id),
+       (array_agg(p.user_id ORDER BY p.service_date DESC) FILTER (WHERE p.user_id IS NOT NULL))[1],
+       MAX(p.client_phone_number),
+       (array_agg(p.client_name ORDER BY p.service_date DESC) FILTER (WHERE p.client_name IS NOT NULL))[1],
+       COUNT(*), SUM(p.amount), MAX(p.service_date)
+FROM payments p
+WHERE p.client_phone_number IS NOT NULL OR p.user_id IS NOT NULL
+GROUP BY COALESCE('phone:' || p.client_phone_number, 'user:' || p.user_id);
@@ -0,0 +1,17 @@
+-- Один клиент мог попасть в client_stats дважды: с номером +7... и 8...
+-- Ключ теперь строится по нормализованному номеру (7 и последние 10 цифр), итоги пересчитываются заново.
+-- Индекс по тому же выражению — для пересчёта всех платежей клиента, как бы ни ввели номер
+CREATE INDEX idx_payments_client_phone_normalized
+    ON payments (('7' || right(regexp_replace(client_phone_number, '\D', '', 'g'), 10)));
+
+DELETE FROM client_stats;
+
+INSERT INTO client_stats (client_key, user_id, client_phone_number, client_name, payments_count, total, last_visit)
+SELECT COALESCE('phone:' || ('7' || right(regexp_replace(p.client_phone_number, '\D', '', 'g'), 10)), 'user:' || p.user_id),
+       (array_agg(p.user_id ORDER BY p.service_date DESC) FILTER (WHERE p.user_id IS NOT NULL))[1],
+       MAX(p.client_phone_number),
+       (array_agg(p.client_name ORDER BY p.service_date DESC) FILTER (WHERE p.client_name IS NOT NULL))[1],
+       COUNT(*), SUM(p.amount), MAX(p.service_date)
+FROM payments p
+WHERE p.client_phone_number IS NOT NULL OR p.user_id IS NOT NULL
+GROUP BY COALESCE('phone:' || ('7' || right(regexp_replace(p.client_phone_number, '\D', '', 'g'), 10)), 'user:' || p.user_id);
@@ -0,0 +1,16 @@
+CREATE TABLE reminders (
+    id BIGSERIAL PRIMARY KEY,
+    appointment_id BIGINT NOT NULL REFERENCES appointments(id) ON DELETE CASCADE,
+    type VARCHAR(20) NOT NULL
+        CHECK (type IN ('DAY_BEFORE', 'TWO_HOURS')),
+    due_at TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING'
+        CHECK (status IN ('PENDING', 'SENT', 'CANCELED', 'FAILED', 'EXPIRED')),
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Поллер выбирает только ожидающие напоминания по времени отправки
+CREATE INDEX idx_reminders_pending_due ON reminders(due_at) WHERE status = 'PENDING';
+CREATE INDEX idx_reminders_appointment ON reminders(appointment_id);
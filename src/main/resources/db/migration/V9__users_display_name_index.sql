@@ -0,0 +1,5 @@
+-- Список пользователей в админке листается по отображаемому имени (имя, иначе ник) без учёта регистра;
+-- id в конце делает порядок однозначным для постраничной выборки по курсору
+CREATE INDEX idx_users_display_name
+    ON users (lower(coalesce(nullif(btrim(first_name), ''), username, '')), id)
+    WHERE telegram_id IS NOT NULL;
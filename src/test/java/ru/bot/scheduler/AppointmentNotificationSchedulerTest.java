@@ -1,9 +1,231 @@
 package ru.bot.scheduler;
 
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import ru.conf.OutboundProperties;
+import ru.conf.ReminderProperties;
+import ru.model.Appointment;
+import ru.model.Reminder;
+import ru.model.User;
+import ru.model.enums.OutboundPriority;
+import ru.model.enums.ReminderStatus;
+import ru.model.enums.ReminderType;
+import ru.model.enums.StatusAppointment;
+import ru.repository.AppointmentRepository;
+import ru.repository.ReminderRepository;
+import ru.scheduler.AppointmentNotificationScheduler;
+import ru.service.NotificationService;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox напоминаний: строка забирается и сдвигается в короткой транзакции, сообщение уходит вне транзакции,
+ * результат отмечается отдельной транзакцией.
+ */
 @ExtendWith(MockitoExtension.class)
 class AppointmentNotificationSchedulerTest {
 
-}
\ No newline at end of file
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private ReminderRepository reminderRepository;
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final ReminderProperties properties = new ReminderProperties();
+    private AppointmentNotificationScheduler scheduler;
+
+    // Какие транзакции открывались и шла ли отправка внутри одной из них
+    private final List<String> events = new ArrayList<>();
+    private boolean inTransaction;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AppointmentNotificationScheduler(notificationService, reminderRepository, appointmentRepository,
+                properties, new OutboundProperties(), transactionTemplate);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            events.add("tx");
+            inTransaction = true;
+            try {
+                return callback.doInTransaction(null);
+            } finally {
+                inTransaction = false;
+            }
+        });
+    }
+
+    @Test
+    void sendsOutsideClaimTransactionAndMarksSent() {
+        Reminder reminder = reminder(StatusAppointment.ACTIVE, 42L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+        when(reminderRepository.findById(reminder.getId())).thenReturn(Optional.of(reminder));
+        when(notificationService.enqueueMessage(eq(42L), any(), isNull(), eq(OutboundPriority.REMINDER)))
+                .thenAnswer(invocation -> {
+                    events.add(inTransaction ? "send-in-tx" : "send");
+                    // Пока идёт отправка, строка сдвинута — другой инстанс её не заберёт
+                    assertThat(reminder.getDueAt()).isAfter(LocalDateTime.now());
+                    return CompletableFuture.completedFuture(new Message());
+                });
+
+        scheduler.poll();
+
+        assertThat(events).containsExactly("tx", "send", "tx");
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.SENT);
+        assertThat(reminder.getAttempts()).isZero();
+    }
+
+    @Test
+    void failedSendStaysPendingWithBackoff() {
+        Reminder reminder = reminder(StatusAppointment.ACTIVE, 42L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+        when(reminderRepository.findById(reminder.getId())).thenReturn(Optional.of(reminder));
+        when(notificationService.enqueueMessage(any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TelegramApiException("Bad Gateway")));
+
+        LocalDateTime before = LocalDateTime.now();
+        scheduler.poll();
+
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.PENDING);
+        assertThat(reminder.getAttempts()).isEqualTo(1);
+        assertThat(reminder.getLastError()).contains("Bad Gateway");
+        assertThat(reminder.getDueAt()).isAfterOrEqualTo(before.plus(properties.getRetryDelay()));
+        assertThat(reminder.getDueAt()).isBefore(before.plus(properties.getSendLease()));
+    }
+
+    @Test
+    void lastFailedAttemptMarksFailed() {
+        Reminder reminder = reminder(StatusAppointment.ACTIVE, 42L);
+        reminder.setAttempts(properties.getMaxAttempts() - 1);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+        when(reminderRepository.findById(reminder.getId())).thenReturn(Optional.of(reminder));
+        when(notificationService.enqueueMessage(any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TelegramApiException("Forbidden")));
+
+        scheduler.poll();
+
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.FAILED);
+        assertThat(reminder.getAttempts()).isEqualTo(properties.getMaxAttempts());
+    }
+
+    @Test
+    void canceledAppointmentIsClosedWithoutSending() {
+        Reminder reminder = reminder(StatusAppointment.CANCELED, 42L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+
+        scheduler.poll();
+
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.CANCELED);
+        assertThat(events).containsExactly("tx");
+        verify(notificationService, never()).enqueueMessage(any(), any(), any(), any());
+    }
+
+    @Test
+    void clientWithoutTelegramIdIsMarkedFailed() {
+        Reminder reminder = reminder(StatusAppointment.ACTIVE, null);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+
+        scheduler.poll();
+
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.FAILED);
+        verify(notificationService, never()).enqueueMessage(any(), any(), any(), any());
+    }
+
+    @Test
+    void reminderCanceledDuringSendIsNotMarkedSent() {
+        Reminder reminder = reminder(StatusAppointment.ACTIVE, 42L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(reminder));
+        when(reminderRepository.findById(reminder.getId())).thenReturn(Optional.of(reminder));
+        when(notificationService.enqueueMessage(any(), any(), any(), any())).thenAnswer(invocation -> {
+            reminder.setStatus(ReminderStatus.CANCELED); // cancelNotifications из другого потока
+            return CompletableFuture.completedFuture(new Message());
+        });
+
+        scheduler.poll();
+
+        assertThat(reminder.getStatus()).isEqualTo(ReminderStatus.CANCELED);
+    }
+
+    @Test
+    void fullBatchIsFollowedByNextClaim() {
+        properties.setBatchSize(1);
+        Reminder first = reminder(StatusAppointment.CANCELED, 42L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(first), List.of());
+
+        scheduler.poll();
+
+        verify(reminderRepository, times(2)).claimDue(any(), eq(1));
+        verify(reminderRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void wholeBatchIsEnqueuedBeforeWaitingForResults() {
+        Reminder first = reminder(11L, StatusAppointment.ACTIVE, 42L);
+        Reminder second = reminder(12L, StatusAppointment.ACTIVE, 43L);
+        when(reminderRepository.claimDue(any(), anyInt())).thenReturn(List.of(first, second));
+        when(reminderRepository.findById(11L)).thenReturn(Optional.of(first));
+        when(reminderRepository.findById(12L)).thenReturn(Optional.of(second));
+        // Первое сообщение доставляется только после постановки второго: при поочерёдном ожидании тест бы завис
+        CompletableFuture<Message> firstSend = new CompletableFuture<>();
+        when(notificationService.enqueueMessage(eq(42L), any(), any(), any())).thenAnswer(invocation -> {
+            events.add("send");
+            return firstSend;
+        });
+        when(notificationService.enqueueMessage(eq(43L), any(), any(), any())).thenAnswer(invocation -> {
+            events.add("send");
+            firstSend.complete(new Message());
+            return CompletableFuture.completedFuture(new Message());
+        });
+
+        scheduler.poll();
+
+        assertThat(events).containsExactly("tx", "send", "send", "tx", "tx");
+        assertThat(first.getStatus()).isEqualTo(ReminderStatus.SENT);
+        assertThat(second.getStatus()).isEqualTo(ReminderStatus.SENT);
+    }
+
+    private static Reminder reminder(StatusAppointment appointmentStatus, Long telegramId) {
+        return reminder(11L, appointmentStatus, telegramId);
+    }
+
+    private static Reminder reminder(Long id, StatusAppointment appointmentStatus, Long telegramId) {
+        User user = User.builder().id(7L).telegramId(telegramId).username("client").build();
+        Appointment appointment = Appointment.builder()
+                .id(3L)
+                .user(user)
+                .dateTime(LocalDateTime.now().plusDays(1))
+                .status(appointmentStatus)
+                .build();
+        return Reminder.builder()
+                .id(id)
+                .appointment(appointment)
+                .type(ReminderType.DAY_BEFORE)
+                .dueAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
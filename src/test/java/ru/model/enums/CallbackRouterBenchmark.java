@@ -0,0 +1,107 @@
+package ru.model.enums;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение разбора callback-данных: прежний поиск через stream + sort и substring
+ * против префиксного дерева с разбором аргумента на месте.
+ * Запуск: main() из IDE или java -cp target/test-classes:target/classes:... ru.model.enums.CallbackRouterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackRouterBenchmark {
+
+    @Param({"date_2025-06-14", "admin_users_page_12", "history_page_3", "admin:override:delete_2025-06-14", "unknown"})
+    public String data;
+
+    private String paymentData;
+
+    @Setup
+    public void setUp() {
+        paymentData = "payment:date_2025-06-14";
+    }
+
+    @Benchmark
+    public void legacyRoute(Blackhole bh) {
+        CallbackType type = legacyFromString(data);
+        bh.consume(type);
+        bh.consume(legacyArg(type, data));
+        bh.consume(legacyPaymentFromString(paymentData));
+    }
+
+    @Benchmark
+    public void trieRoute(Blackhole bh) {
+        CallbackType type = CallbackType.fromString(data);
+        bh.consume(type);
+        bh.consume(trieArg(type, data));
+        bh.consume(CallbackPaymentType.fromString(paymentData));
+    }
+
+    private static Object legacyArg(CallbackType type, String data) {
+        return switch (type) {
+            case DATE -> LocalDate.parse(data.substring(5));
+            case ADMIN_USERS_PAGE -> Integer.parseInt(data.substring("admin_users_page_".length()));
+            case HISTORY_PAGE -> Integer.parseInt(data.substring("history_page_".length()));
+            case ADMIN_DELETE_OVERRIDE -> LocalDate.parse(data.substring("admin:override:delete_".length()));
+            default -> null;
+        };
+    }
+
+    private static Object trieArg(CallbackType type, String data) {
+        return switch (type) {
+            case DATE, ADMIN_DELETE_OVERRIDE -> type.dateArg(data);
+            case ADMIN_USERS_PAGE, HISTORY_PAGE -> type.intArg(data);
+            default -> null;
+        };
+    }
+
+    // Прежняя реализация CallbackType.fromString
+    private static CallbackType legacyFromString(String data) {
+        if (data == null) return CallbackType.UNKNOWN;
+        return Arrays.stream(CallbackType.values())
+                .filter(type -> !type.getPrefix().isEmpty())
+                .sorted((a, b) -> Integer.compare(b.getPrefix().length(), a.getPrefix().length()))
+                .filter(type -> data.startsWith(type.getPrefix()))
+                .findFirst()
+                .orElse(CallbackType.UNKNOWN);
+    }
+
+    // Прежняя реализация CallbackPaymentType.fromString
+    private static CallbackPaymentType legacyPaymentFromString(String data) {
+        if (data == null) return CallbackPaymentType.UNKNOWN;
+        return Arrays.stream(CallbackPaymentType.values())
+                .filter(type -> !type.getPrefix().isEmpty())
+                .sorted((a, b) -> Integer.compare(b.getPrefix().length(), a.getPrefix().length()))
+                .filter(type -> data.startsWith(type.getPrefix()))
+                .findFirst()
+                .orElse(CallbackPaymentType.UNKNOWN);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CallbackRouterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка планов запросов по платежам на живом Postgres: диапазон по service_date и топ клиентов
+ * должны читаться по индексам, а не полным сканированием таблицы.
+ * Запускается, только если задан EXPLAIN_DB_URL (например jdbc:postgresql://localhost:5432/bot),
+ * пользователь и пароль — EXPLAIN_DB_USER и EXPLAIN_DB_PASSWORD. Работает в отдельной схеме и удаляет её.
+ */
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class PaymentRepositoryExplainTest {
+
+    private static final String SCHEMA = "explain_test";
+    private static final String INDEX = "idx_payments_service_date_amount";
+    private static final int PAYMENTS = 50_000;
+    private static final int CLIENTS = 5_000;
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        String url = System.getenv("EXPLAIN_DB_URL");
+        String user = System.getenv("EXPLAIN_DB_USER");
+        String password = System.getenv("EXPLAIN_DB_PASSWORD");
+        Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(url, user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + SCHEMA);
+            // Два года платежей, примерно 70 в день
+            statement.execute("""
+                    INSERT INTO payments (amount, service_type, service_date, created_by, client_phone_number)
+                    SELECT 500 + (i % 20) * 100, 'HAIRCUT',
+                           TIMESTAMP '2024-01-01 10:00' + (i * INTERVAL '1 minute' * 21), 1,
+                           '+7999' || lpad(CAST(i %% %d AS TEXT), 7, '0')
+                    FROM generate_series(1, %d) AS i
+                    """.formatted(CLIENTS, PAYMENTS));
+            statement.execute("INSERT INTO client_stats (client_key, user_id, client_phone_number, client_name,"
+                    + " payments_count, total, last_visit) SELECT " + PaymentRepository.CLIENT_KEY + ", "
+                    + PaymentRepository.CLIENT_TOTALS + " FROM payments p GROUP BY " + PaymentRepository.CLIENT_KEY);
+            statement.execute("VACUUM ANALYZE payments");
+            statement.execute("VACUUM ANALYZE client_stats");
+        }
+    }
+
+    @AfterAll
+    static void drop() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    void dailySumsForAWeekUseCoveringIndex() throws SQLException {
+        String plan = explain(PaymentRepository.DAILY_SUMS, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 8));
+
+        assertThat(plan).contains("Index Only Scan").contains(INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void hourlySumsForADayUseCoveringIndex() throws SQLException {
+        String plan = explain(PaymentRepository.HOURLY_SUMS, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 2));
+
+        assertThat(plan).contains("Index Only Scan").contains(INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void paymentsOfADayUseIndexRange() throws SQLException {
+        String plan = explain("""
+                SELECT * FROM payments p
+                WHERE p.service_date >= :start AND p.service_date < :end
+                ORDER BY p.service_date
+                """, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 2));
+
+        assertThat(plan).contains(INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void topClientsPageReadsLeaderboardIndex() throws SQLException {
+        String sql = "EXPLAIN " + PaymentRepository.CLIENT_STATS_COLUMNS
+                + " ORDER BY s.total DESC, s.client_key LIMIT 11 OFFSET 20";
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                plan.append(rows.getString(1)).append('\n');
+            }
+        }
+
+        assertThat(plan.toString()).contains("idx_client_stats_total").doesNotContain("Sort");
+    }
+
+    // Именованные параметры запроса репозитория подставляются как параметры JDBC
+    private static String explain(String sql, LocalDate from, LocalDate to) throws SQLException {
+        String jdbcSql = "EXPLAIN " + sql.replace(":start", "?").replace(":end", "?");
+        try (PreparedStatement statement = connection.prepareStatement(jdbcSql)) {
+            statement.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            statement.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
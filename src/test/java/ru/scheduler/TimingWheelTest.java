@@ -0,0 +1,144 @@
+package ru.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Колесо 4 корзины × 3 уровня с тиком 1 мс: уровень 0 — до 4 тиков вперёд, 1 — до 16, 2 — дальше.
+ * Каждый таймер должен сработать ровно на тике своего срока, в том числе после опускания с верхних уровней.
+ */
+class TimingWheelTest {
+
+    private static final int WHEEL_SIZE = 4;
+    private static final int LEVELS = 3;
+
+    @Test
+    void firesEachTimerExactlyAtItsTickAcrossLevelBoundaries() {
+        TimingWheel<String, Long> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 0);
+        // Последний тик уровня 0, первый уровня 1, последний уровня 1, первый уровня 2, границы корзин уровня 2
+        long[] deadlines = {1, 3, 4, 5, 15, 16, 17, 31, 32, 63, 64, 65, 100};
+        for (long deadline : deadlines) {
+            wheel.schedule("t" + deadline, deadline, deadline);
+        }
+
+        for (long now = 1; now <= 120; now++) {
+            List<Long> fired = wheel.advance(now);
+            if (contains(deadlines, now)) {
+                assertThat(fired).as("тик %d", now).containsExactly(now);
+            } else {
+                assertThat(fired).as("тик %d", now).isEmpty();
+            }
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadedTimerFiresAtDeadlineNotAtBucketStart() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 5);
+        // С тика 5 срок 46 лежит на уровне 2 в корзине [32, 48), затем опускается на уровень 1 и 0
+        wheel.schedule("a", "a", 46);
+
+        assertThat(wheel.advance(32)).isEmpty();
+        assertThat(wheel.advance(44)).isEmpty();
+        assertThat(wheel.advance(45)).isEmpty();
+        assertThat(wheel.advance(46)).containsExactly("a");
+        assertThat(wheel.contains("a")).isFalse();
+    }
+
+    @Test
+    void largeJumpReturnsEverythingDueInOneCall() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 0);
+        wheel.schedule("near", "near", 2);
+        wheel.schedule("mid", "mid", 20);
+        wheel.schedule("far", "far", 70);
+        wheel.schedule("later", "later", 200);
+
+        assertThat(wheel.advance(70)).containsExactly("near", "mid", "far");
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(200)).containsExactly("later");
+    }
+
+    @Test
+    void canceledTimerNeverFires() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 0);
+        wheel.schedule("a", "a", 3);
+        wheel.schedule("b", "b", 40);
+        wheel.schedule("c", "c", 40);
+
+        assertThat(wheel.cancel("a")).isTrue();
+        assertThat(wheel.cancel("b")).isTrue();
+        assertThat(wheel.cancel("b")).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.advance(100)).containsExactly("c");
+    }
+
+    @Test
+    void rescheduleReplacesPreviousDeadlineAndValue() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 0);
+        wheel.schedule("a", "first", 10);
+        wheel.schedule("a", "second", 50);
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.advance(49)).isEmpty();
+        assertThat(wheel.advance(50)).containsExactly("second");
+
+        // Перенос на более ранний срок
+        wheel.schedule("b", "late", 120);
+        wheel.schedule("b", "early", 60);
+        assertThat(wheel.advance(60)).containsExactly("early");
+        assertThat(wheel.advance(200)).isEmpty();
+    }
+
+    @Test
+    void overdueTimerFiresOnNextTick() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 10);
+        wheel.schedule("a", "a", 3);
+
+        assertThat(wheel.advance(10)).isEmpty();
+        assertThat(wheel.advance(11)).containsExactly("a");
+    }
+
+    @Test
+    void tickLongerThanMillisecondRoundsDeadlineDown() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1000, WHEEL_SIZE, LEVELS, 0);
+        wheel.schedule("a", "a", 5_999);
+
+        assertThat(wheel.advance(4_999)).isEmpty();
+        assertThat(wheel.advance(5_000)).containsExactly("a");
+    }
+
+    @Test
+    void randomDeadlinesFireExactlyOnTime() {
+        Random random = new Random(42);
+        TimingWheel<Integer, Long> wheel = new TimingWheel<>(1, WHEEL_SIZE, LEVELS, 0);
+        Map<Long, List<Long>> expected = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = 1 + random.nextInt(300);
+            wheel.schedule(i, deadline, deadline);
+            expected.computeIfAbsent(deadline, d -> new ArrayList<>()).add(deadline);
+        }
+
+        for (long now = 1; now <= 300; now++) {
+            assertThat(wheel.advance(now)).as("тик %d", now)
+                    .containsExactlyInAnyOrderElementsOf(expected.getOrDefault(now, List.of()));
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static boolean contains(long[] values, long value) {
+        for (long v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
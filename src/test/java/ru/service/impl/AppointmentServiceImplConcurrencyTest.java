@@ -0,0 +1,177 @@
+package ru.service.impl;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.model.Appointment;
+import ru.model.User;
+import ru.model.enums.UserRole;
+import ru.repository.AppointmentRepository;
+import ru.repository.UserRepository;
+import ru.scheduler.AppointmentNotificationScheduler;
+import ru.service.NotificationService;
+import ru.service.UserSessionService;
+import ru.service.WorkScheduleService;
+import ru.service.availability.SlotAvailabilityIndex;
+import ru.service.cache.AdminStatsCache;
+import ru.service.calendar.WorkingCalendar;
+import ru.service.calendar.WorkingCalendarHolder;
+import ru.util.KeyboardFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузочная проверка двойной записи на настоящем Postgres: THREADS клиентов одновременно (через барьер)
+ * записываются на одни и те же SLOTS часов, каждая запись — отдельная транзакция createAppointment.
+ * Уникальный индекс uk_appointment_active_datetime включает user_id и разных клиентов не останавливает,
+ * поэтому на каждый слот должна пройти ровно одна запись, остальные THREADS − 1 — получить отказ.
+ * Запускается, только если задан BOOKING_RACE_DB_URL (и BOOKING_RACE_DB_USER / BOOKING_RACE_DB_PASSWORD);
+ * работает в отдельной схеме и удаляет её.
+ */
+@EnabledIfEnvironmentVariable(named = "BOOKING_RACE_DB_URL", matches = ".+")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentServiceImplConcurrencyTest {
+
+    private static final String SCHEMA = "booking_race_test";
+    private static final int THREADS = 8;
+    private static final int SLOTS = 10;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AppointmentServiceImpl appointmentService;
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("BOOKING_RACE_DB_URL");
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username", () -> System.getenv("BOOKING_RACE_DB_USER"));
+        registry.add("spring.datasource.password", () -> System.getenv("BOOKING_RACE_DB_PASSWORD"));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS + 2);
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+    }
+
+    @AfterAll
+    static void drop() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(System.getenv("BOOKING_RACE_DB_URL"),
+                System.getenv("BOOKING_RACE_DB_USER"), System.getenv("BOOKING_RACE_DB_PASSWORD"));
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DELETE FROM appointments");
+        WorkingCalendar calendar = mock(WorkingCalendar.class);
+        when(calendar.isBookable(any(), anyInt())).thenReturn(true);
+        WorkingCalendarHolder workingCalendarHolder = mock(WorkingCalendarHolder.class);
+        when(workingCalendarHolder.get()).thenReturn(calendar);
+        appointmentService = new AppointmentServiceImpl(appointmentRepository,
+                mock(AppointmentNotificationScheduler.class), mock(WorkScheduleService.class),
+                mock(UserSessionService.class), mock(NotificationService.class), userRepository,
+                mock(KeyboardFactory.class), mock(SlotAvailabilityIndex.class), workingCalendarHolder,
+                mock(AdminStatsCache.class));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void concurrentBookingsLeaveExactlyOneActiveAppointmentPerSlot() throws Exception {
+        List<User> clients = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            clients.add(userRepository.save(User.builder()
+                    .telegramId(1000L + i).firstName("Клиент " + i).role(UserRole.ADMIN).build()));
+        }
+        LocalDateTime firstSlot = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        List<LocalDateTime> slots = new ArrayList<>();
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(firstSlot.plusHours(i));
+        }
+
+        Map<LocalDateTime, AtomicInteger> booked = new ConcurrentHashMap<>();
+        Map<LocalDateTime, AtomicInteger> rejected = new ConcurrentHashMap<>();
+        List<Throwable> unexpected = new ArrayList<>();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (User client : clients) {
+                workers.add(executor.submit(() -> {
+                    start.await(30, TimeUnit.SECONDS);
+                    for (LocalDateTime slot : slots) {
+                        try {
+                            book(client, slot);
+                            booked.computeIfAbsent(slot, s -> new AtomicInteger()).incrementAndGet();
+                        } catch (IllegalStateException e) {
+                            rejected.computeIfAbsent(slot, s -> new AtomicInteger()).incrementAndGet();
+                        } catch (RuntimeException e) {
+                            synchronized (unexpected) {
+                                unexpected.add(e);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(unexpected).isEmpty();
+        for (LocalDateTime slot : slots) {
+            assertThat(booked.get(slot)).as("записей на %s", slot).hasValue(1);
+            assertThat(rejected.get(slot)).as("отказов на %s", slot).hasValue(THREADS - 1);
+            Integer active = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM appointments WHERE date_time = ? AND status = 'ACTIVE'", Integer.class, slot);
+            assertThat(active).as("активных строк на %s", slot).isEqualTo(1);
+        }
+    }
+
+    private void book(User user, LocalDateTime slot) {
+        transactionTemplate.executeWithoutResult(status ->
+                appointmentService.createAppointment(Appointment.builder().user(user).dateTime(slot).build()));
+    }
+}
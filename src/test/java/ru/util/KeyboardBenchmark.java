@@ -0,0 +1,129 @@
+package ru.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
+import ru.model.enums.CallbackPaymentType;
+import ru.model.enums.UserRole;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static ru.util.BotConstants.*;
+
+/**
+ * Сравнение сборки клавиатур на каждый вызов (прежний код) с готовыми меню и запомненными клавиатурами.
+ * Запуск: main() из IDE или java -cp target/test-classes:target/classes:... ru.util.KeyboardBenchmark
+ *
+ * <pre>
+ * Benchmark                               Mode  Cnt     Score      Error  Units
+ * KeyboardBenchmark.cachedAdminMenu       avgt    5     1.114 ±    0.664  ns/op
+ * KeyboardBenchmark.cachedDateSelection   avgt    5   621.177 ±  253.007  ns/op
+ * KeyboardBenchmark.cachedStatisticsMenu  avgt    5     0.877 ±    0.254  ns/op
+ * KeyboardBenchmark.legacyAdminMenu       avgt    5   140.277 ±   22.951  ns/op
+ * KeyboardBenchmark.legacyDateSelection   avgt    5  4626.972 ± 2925.167  ns/op
+ * KeyboardBenchmark.legacyStatisticsMenu  avgt    5   114.947 ±   38.697  ns/op
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyboardBenchmark {
+
+    private KeyboardFactory keyboardFactory;
+    private AdminKeyboard adminKeyboard;
+    private Map<LocalDate, Integer> freeSlots;
+
+    @Setup
+    public void setUp() {
+        keyboardFactory = new KeyboardFactory();
+        adminKeyboard = new AdminKeyboard(keyboardFactory);
+        freeSlots = new LinkedHashMap<>();
+        LocalDate start = LocalDate.of(2025, 6, 14);
+        for (int i = 0; i < 14; i++) {
+            freeSlots.put(start.plusDays(i), 8 - i % 5);
+        }
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup legacyAdminMenu() {
+        return new InlineKeyboardMarkup(List.of(
+                keyboardFactory.row("📋 Записи", "admin:menu:appointments"),
+                keyboardFactory.row(CMD_ADMIN_SCHEDULE_MENU, "admin:menu:schedule"),
+                keyboardFactory.row(CMD_ALL_USERS, "admin_show_users"),
+                keyboardFactory.row(CMD_SHOW_STATS, "admin_stats"),
+                keyboardFactory.row(CMD_ADMIN_MANAGEMENT, "admin:add:new_admin"),
+                keyboardFactory.row(CMD_ADMIN_PAYMENT_MENU, "payment:menu")
+        ));
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup cachedAdminMenu() {
+        return adminKeyboard.getMainAdminMenu();
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup legacyStatisticsMenu() {
+        return new InlineKeyboardMarkup(List.of(
+                new InlineKeyboardRow(List.of(
+                        keyboardFactory.createButton(CMD_PAYMENT_TODAY, CallbackPaymentType.PAYMENT_TODAY_STATS.getPrefix()),
+                        keyboardFactory.createButton(CMD_PAYMENT_YESTERDAY, CallbackPaymentType.PAYMENT_YESTERDAY_STATS.getPrefix()))),
+                new InlineKeyboardRow(List.of(
+                        keyboardFactory.createButton(CMD_PAYMENT_WEEK, CallbackPaymentType.PAYMENT_CURRENT_WEEK_STATS.getPrefix()),
+                        keyboardFactory.createButton(CMD_PAYMENT_MONTH, CallbackPaymentType.PAYMENT_CURRENT_MONTH_STATS.getPrefix()))),
+                new InlineKeyboardRow(List.of(
+                        keyboardFactory.createButton(CMD_TOTAL_PAYMENT_STATS, CallbackPaymentType.PAYMENT_TOTAL_STATS.getPrefix()),
+                        keyboardFactory.createButton(CMD_PAYMENT_CUSTOM_PERIOD, CallbackPaymentType.PAYMENT_CUSTOM_PERIOD.getPrefix()))),
+                new InlineKeyboardRow(List.of(keyboardFactory.createButton("⬅️ В админ-меню", "admin_back")))
+        ));
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup cachedStatisticsMenu() {
+        return adminKeyboard.getStatisticsMenu();
+    }
+
+    // Прежняя реализация KeyboardFactory.dateSelectionKeyboard
+    @Benchmark
+    public void legacyDateSelection(Blackhole bh) {
+        List<InlineKeyboardRow> rows = new ArrayList<>();
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd.MM (E)", Locale.of("ru"));
+        freeSlots.forEach((date, free) ->
+                rows.add(keyboardFactory.row(date.format(dateFormat) + " · свободно: " + free, "date_" + date)));
+        rows.add(keyboardFactory.row("⬅️ Назад в меню", "back_to_menu"));
+        bh.consume(new InlineKeyboardMarkup(rows));
+    }
+
+    @Benchmark
+    public void cachedDateSelection(Blackhole bh) {
+        bh.consume(keyboardFactory.dateSelectionKeyboard(freeSlots, UserRole.USER));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(KeyboardBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}